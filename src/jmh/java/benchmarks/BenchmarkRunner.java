@@ -0,0 +1,124 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BenchmarkRunner {
+    // Runs the benchmarks with the GC profiler and compares them against a committed
+    // baseline. Allocation per operation is nearly machine independent, so it is the
+    // primary regression signal; throughput is compared too but depends on the host.
+    //
+    //   mvn -Pjmh test                                  run and compare
+    //   mvn -Pjmh test -Djmh.include=Validator          subset
+    //   mvn -Pjmh test -Djmh.update.baseline=true       accept the current numbers
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // Small absolute allocation changes (e.g. one boxed value) are noise, not regressions
+    private static final double ALLOCATION_SLACK_BYTES = 64;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 && !args[0].isEmpty() ? args[0] : "benchmarks\\..*Benchmark";
+        File result = new File(System.getProperty("jmh.result", "target/jmh-result.json"));
+        File baseline = new File(System.getProperty("jmh.baseline", "src/jmh/resources/jmh-baseline.json"));
+        double tolerance = Double.parseDouble(System.getProperty("jmh.tolerance", "0.25"));
+        boolean updateBaseline = Boolean.parseBoolean(System.getProperty("jmh.update.baseline", "false"));
+
+        result.getAbsoluteFile().getParentFile().mkdirs();
+        Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(result.getPath())
+            .build();
+        new Runner(options).run();
+
+        Map<String, double[]> current = summarize(mapper.readTree(result));
+        if (updateBaseline || !baseline.exists()) {
+            writeBaseline(baseline, current);
+            System.out.println("Wrote JMH baseline with " + current.size() + " entries to " + baseline);
+            return;
+        }
+
+        List<String> regressions = compare(summarizeBaseline(mapper.readTree(baseline)), current, tolerance);
+        if (!regressions.isEmpty()) {
+            System.out.println(regressions.size() + " benchmark regression(s) beyond " + (int) (tolerance * 100) + "%:");
+            regressions.forEach(line -> System.out.println("  " + line));
+            System.exit(1);
+        }
+        System.out.println("No benchmark regressions beyond " + (int) (tolerance * 100) + "% of " + baseline);
+    }
+
+    // Benchmark name with its params -> {ops/s, bytes/op}
+    static Map<String, double[]> summarize(JsonNode jmhResults) {
+        Map<String, double[]> summary = new TreeMap<>();
+        for (JsonNode run : jmhResults) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(':').append(name).append('=').append(value));
+            double throughput = run.path("primaryMetric").path("score").asDouble();
+            double allocation = run.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble(-1);
+            summary.put(key.toString(), new double[]{throughput, allocation});
+        }
+        return summary;
+    }
+
+    static List<String> compare(Map<String, double[]> baseline, Map<String, double[]> current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-90s %14s %14s %12s %12s%n", "benchmark", "ops/s", "baseline", "B/op", "baseline");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] now = entry.getValue();
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14.1f %14s %12.0f %12s%n", entry.getKey(), now[0], "new", now[1], "new");
+                continue;
+            }
+            System.out.printf("%-90s %14.1f %14.1f %12.0f %12.0f%n", entry.getKey(), now[0], before[0], now[1], before[1]);
+            if (now[0] < before[0] * (1 - tolerance)) {
+                regressions.add(String.format("%s throughput %.1f ops/s vs baseline %.1f", entry.getKey(), now[0], before[0]));
+            }
+            if (before[1] >= 0 && now[1] > before[1] * (1 + tolerance) + ALLOCATION_SLACK_BYTES) {
+                regressions.add(String.format("%s allocates %.0f B/op vs baseline %.0f", entry.getKey(), now[1], before[1]));
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, double[]> summarizeBaseline(JsonNode baseline) {
+        Map<String, double[]> summary = new TreeMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = baseline.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            summary.put(entry.getKey(), new double[]{
+                entry.getValue().path("opsPerSecond").asDouble(),
+                entry.getValue().path("bytesPerOp").asDouble(-1)});
+        }
+        return summary;
+    }
+
+    private static void writeBaseline(File baseline, Map<String, double[]> current) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        current.forEach((key, values) -> {
+            ObjectNode entry = root.putObject(key);
+            entry.put("opsPerSecond", Math.round(values[0] * 10) / 10.0);
+            entry.put("bytesPerOp", Math.round(values[1]));
+        });
+        baseline.getAbsoluteFile().getParentFile().mkdirs();
+        mapper.writerWithDefaultPrettyPrinter().writeValue(baseline, root);
+    }
+}
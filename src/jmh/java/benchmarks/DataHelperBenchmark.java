@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.CommonQuery;
+import utils.MultilingualHelper;
+import utils.TestData;
+import utils.TestDataLoader;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataHelperBenchmark {
+
+    // Only the keyword lookup depends on language, so the parse benchmarks run once
+    @State(Scope.Benchmark)
+    public static class QueryState {
+        @Param({"en", "ar"})
+        public String language;
+
+        CommonQuery query;
+
+        @Setup
+        public void setUp() {
+            query = MultilingualHelper.getCommonQueries().get(0);
+        }
+    }
+
+    @Benchmark
+    public List<String> getExpectedKeywords(QueryState state) {
+        return MultilingualHelper.getExpectedKeywords(state.query, state.language);
+    }
+
+    // Cached path every test hits through TestBase.getTestData()
+    @Benchmark
+    public TestData loadTestData() {
+        return TestDataLoader.loadTestData();
+    }
+
+    // Cold parse of test-data.json, paid once per JVM and per shard
+    @Benchmark
+    public TestData parseTestData() {
+        return TestDataLoader.parseTestData();
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+final class Fixtures {
+    // Realistic chatbot replies grown to an exact UTF-8 size by repeating a seed
+    // answer; cut on a code point boundary so Arabic text stays valid.
+
+    private Fixtures() {
+    }
+
+    static String response(String language, int sizeBytes) {
+        String seed = read("fixtures/response-" + language + ".txt");
+        StringBuilder text = new StringBuilder(sizeBytes);
+        int bytes = 0;
+        for (int i = 0; bytes < sizeBytes; i = (i + Character.charCount(seed.codePointAt(i))) % seed.length()) {
+            int codePoint = seed.codePointAt(i);
+            int width = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+            if (bytes + width > sizeBytes) {
+                break;
+            }
+            text.appendCodePoint(codePoint);
+            bytes += width;
+        }
+        return text.toString().trim();
+    }
+
+    static String read(String resource) {
+        try (InputStream input = Fixtures.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException(resource + " not found");
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
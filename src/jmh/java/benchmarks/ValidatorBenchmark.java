@@ -0,0 +1,70 @@
+package benchmarks;
+
+import base.AIResponseValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.CommonQuery;
+import utils.MultilingualHelper;
+import utils.TextNormalizer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    @Param({"en", "ar"})
+    public String language;
+
+    // Reply size in UTF-8 bytes: a one-liner up to a runaway 200 KB answer
+    @Param({"100", "2000", "20000", "200000"})
+    public int sizeBytes;
+
+    private String response;
+    private String prompt;
+    private List<String> expectedKeywords;
+    private final TextNormalizer normalizer = new TextNormalizer();
+
+    @Setup
+    public void setUp() {
+        response = Fixtures.response(language, sizeBytes);
+        CommonQuery query = MultilingualHelper.getCommonQueries().get(0);
+        prompt = MultilingualHelper.getPromptForLanguage(query, language);
+        expectedKeywords = MultilingualHelper.getExpectedKeywords(query, language);
+    }
+
+    @Benchmark
+    public boolean validateResponseQuality() {
+        return AIResponseValidator.validateResponseQuality(response, expectedKeywords);
+    }
+
+    @Benchmark
+    public boolean hasBrokenHTML() {
+        return AIResponseValidator.hasBrokenHTML(response);
+    }
+
+    @Benchmark
+    public boolean isResponseHallucinated() {
+        return AIResponseValidator.isResponseHallucinated(response, prompt);
+    }
+
+    // Bulk re-validation folds every stored reply; the buffer is reused, so 0 B/op is expected
+    @Benchmark
+    public int normalize() {
+        return normalizer.normalize(response).length();
+    }
+}
@@ -1,53 +1,82 @@
 package base;
 
+import utils.CrossLingualSimilarity;
+import utils.KeywordMatcher;
+import utils.PhaseMetrics;
+import utils.RelevanceScorer;
+
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AIResponseValidator {
     
+    // Generic avoidance phrases, compiled once into a single matcher
+    private static final List<String> AVOIDANCE_PHRASES = Collections.unmodifiableList(Arrays.asList(
+        "i cannot", "i'm not able", "as an ai", "i don't have",
+        "لا أستطيع", "غير قادر", "كمنظمة ذكاء اصطناعي"
+    ));
+    private static final KeywordMatcher AVOIDANCE_MATCHER = KeywordMatcher.compile(AVOIDANCE_PHRASES);
+    
+    // One compiled matcher per distinct keyword list
+    private static final int MAX_CACHED_MATCHERS = 10_000;
+    private static final Map<List<String>, KeywordMatcher> KEYWORD_MATCHERS = new ConcurrentHashMap<>();
+    
     public static boolean validateResponseQuality(String response, List<String> expectedKeywords) {
-        if (response == null || response.trim().isEmpty()) {
-            return false;
-        }
-        
-        // Check for incomplete thoughts
-        if (hasIncompleteThought(response)) {
+        return PhaseMetrics.measure(PhaseMetrics.VALIDATION, () -> checkResponseQuality(response, expectedKeywords));
+    }
+    
+    private static boolean checkResponseQuality(String response, List<String> expectedKeywords) {
+        if (response == null) {
             return false;
         }
         
-        // Check for broken HTML
-        if (hasBrokenHTML(response)) {
+        // Blank text, incomplete thoughts, broken HTML and keywords in one pass
+        StreamingResponseValidator validator = new StreamingResponseValidator(expectedKeywords);
+        validator.accept(response);
+        return validator.isValid();
+    }
+    
+    public static boolean validateMultilingualConsistency(String englishResponse, String arabicResponse) {
+        return PhaseMetrics.measure(PhaseMetrics.VALIDATION, () -> checkMultilingualConsistency(englishResponse, arabicResponse));
+    }
+    
+    private static boolean checkMultilingualConsistency(String englishResponse, String arabicResponse) {
+        // Basic validation that both responses are meaningful
+        if (englishResponse == null || arabicResponse == null ||
+                englishResponse.trim().isEmpty() || arabicResponse.trim().isEmpty() ||
+                englishResponse.length() <= 10 || arabicResponse.length() <= 10) {
             return false;
         }
         
-        // Check for expected keywords
-        return containsExpectedKeywords(response, expectedKeywords);
+        // Both answers must share enough loanwords, names and figures to be the same answer
+        return CrossLingualSimilarity.getDefault().isConsistent(englishResponse, arabicResponse);
     }
     
-    public static boolean validateMultilingualConsistency(String englishResponse, String arabicResponse) {
-        // Basic validation that both responses are meaningful
-        return !englishResponse.trim().isEmpty() && !arabicResponse.trim().isEmpty() &&
-               englishResponse.length() > 10 && arabicResponse.length() > 10;
+    public static double scoreMultilingualConsistency(String englishResponse, String arabicResponse) {
+        return CrossLingualSimilarity.getDefault().similarity(englishResponse, arabicResponse);
     }
     
     public static boolean isResponseHallucinated(String response, String prompt) {
+        return isResponseHallucinated(response, prompt, RelevanceScorer.getDefault());
+    }
+    
+    // Relevance judged against the given scorer's corpus statistics
+    public static boolean isResponseHallucinated(String response, String prompt, RelevanceScorer scorer) {
+        return PhaseMetrics.measure(PhaseMetrics.VALIDATION, () -> checkHallucination(response, prompt, scorer));
+    }
+    
+    private static boolean checkHallucination(String response, String prompt, RelevanceScorer scorer) {
         // Basic hallucination detection
-        String lowerResponse = response.toLowerCase();
-        String lowerPrompt = prompt.toLowerCase();
-        
         // Check if response contains generic avoidance phrases
-        List<String> avoidancePhrases = Arrays.asList(
-            "i cannot", "i'm not able", "as an ai", "i don't have",
-            "لا أستطيع", "غير قادر", "كمنظمة ذكاء اصطناعي"
-        );
-        
-        if (avoidancePhrases.stream().anyMatch(lowerResponse::contains)) {
+        if (AVOIDANCE_MATCHER.matchesAny(response)) {
             return true;
         }
         
         // Check if response is completely unrelated to prompt
-        return !isResponseRelevant(response, prompt);
+        return !scorer.isRelevant(prompt, response);
     }
     
     public static boolean isInputSanitized(String input, String renderedOutput) {
@@ -57,43 +86,39 @@ public class AIResponseValidator {
                !renderedOutput.equals(input); // Should be sanitized, not identical
     }
     
-    private static boolean hasIncompleteThought(String response) {
-        return response.endsWith("...") || 
-               response.endsWith("--") ||
-               countSentences(response) < 1;
+    public static boolean hasBrokenHTML(String response) {
+        return StreamingResponseValidator.hasBrokenHTML(response);
     }
     
-    private static boolean hasBrokenHTML(String response) {
-        Pattern brokenHTML = Pattern.compile("<[^>]*$|^[^<]*>|<[^>]*(<|$)");
-        return brokenHTML.matcher(response).find();
+    public static List<KeywordMatcher.Match> findAvoidancePhrases(String response) {
+        return AVOIDANCE_MATCHER.findAll(response);
     }
     
-    private static boolean containsExpectedKeywords(String response, List<String> expectedKeywords) {
-        if (expectedKeywords == null || expectedKeywords.isEmpty()) {
-            return true; // No keywords to check
+    public static List<KeywordMatcher.Match> findKeywordMatches(String response, List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) {
+            return Collections.emptyList();
         }
-        
-        String lowerResponse = response.toLowerCase();
-        return expectedKeywords.stream()
-                .map(String::toLowerCase)
-                .anyMatch(lowerResponse::contains);
+        return getKeywordMatcher(keywords).findAll(response);
     }
     
-    private static boolean isResponseRelevant(String response, String prompt) {
-        // Simple relevance check
-        String[] promptWords = prompt.toLowerCase().split("\\s+");
-        long matchingWords = Arrays.stream(promptWords)
-                .filter(word -> word.length() > 3)
-                .filter(response.toLowerCase()::contains)
-                .count();
-        
-        return matchingWords >= 2;
+    public static KeywordMatcher getKeywordMatcher(List<String> keywords) {
+        KeywordMatcher matcher = KEYWORD_MATCHERS.get(keywords);
+        if (matcher == null) {
+            if (KEYWORD_MATCHERS.size() >= MAX_CACHED_MATCHERS) {
+                KEYWORD_MATCHERS.clear();
+            }
+            // Copy the key so later changes to the caller's list cannot corrupt the cache
+            matcher = KEYWORD_MATCHERS.computeIfAbsent(List.copyOf(keywords), KeywordMatcher::compile);
+        }
+        return matcher;
     }
     
-    private static int countSentences(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return 0;
-        }
-        return text.split("[.!?]+").length;
+    public static double scoreRelevance(String response, String prompt) {
+        RelevanceScorer scorer = RelevanceScorer.getDefault();
+        return scorer.score(scorer.compile(prompt), response);
+    }
+    
+    static KeywordMatcher getAvoidanceMatcher() {
+        return AVOIDANCE_MATCHER;
     }
 }
@@ -0,0 +1,146 @@
+package base;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.FluentWait;
+import utils.ConfigManager;
+import utils.PhaseMetrics;
+import utils.WaitHistory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class AdaptiveWait {
+    // Explicit waits whose timeout and polling come from how long the same wait (target,
+    // selector, condition and language) took in past runs. Drivers run with no implicit wait, so a
+    // lookup that finds nothing returns at once and all waiting happens here.
+    //
+    //   timeout = clamp(p99 * wait.budget.multiplier, wait.min.timeout.ms, caller's cap)
+    //   polling = clamp(p50 / 5, 25 ms, wait.poll.interval.ms)
+    //
+    // Until a wait has wait.min.samples observations it gets the cap and default polling.
+    // A timeout is recorded at the budget it hit, so repeated timeouts widen the budget.
+
+    private static final long MIN_POLL_MS = 25;
+
+    private final WebDriver driver;
+    private final String language;
+    private final String target = target();
+    private final WaitHistory history;
+    private final Duration defaultCap = Duration.ofSeconds(ConfigManager.getIntProperty("timeout.explicit", 30));
+    private final long defaultPollMs = ConfigManager.getIntProperty("wait.poll.interval.ms", 250);
+    private final long minTimeoutMs = ConfigManager.getIntProperty("wait.min.timeout.ms", 2000);
+    private final int minSamples = ConfigManager.getIntProperty("wait.min.samples", 20);
+    private final double multiplier = Double.parseDouble(ConfigManager.getProperty("wait.budget.multiplier", "3"));
+
+    public AdaptiveWait(WebDriver driver, String language) {
+        this(driver, language, WaitHistory.shared());
+    }
+
+    public AdaptiveWait(WebDriver driver, String language, WaitHistory history) {
+        this.driver = driver;
+        this.language = language == null ? "" : language;
+        this.history = history;
+    }
+
+    public WebElement visible(By locator) {
+        return until("visible " + locator, ExpectedConditions.visibilityOfElementLocated(locator));
+    }
+
+    public WebElement clickable(By locator) {
+        return until("clickable " + locator, ExpectedConditions.elementToBeClickable(locator));
+    }
+
+    public boolean invisible(By locator) {
+        return until("invisible " + locator, ExpectedConditions.invisibilityOfElementLocated(locator));
+    }
+
+    public List<WebElement> moreThan(By locator, int count) {
+        return until("more than " + count + " " + locator, ExpectedConditions.numberOfElementsToBeMoreThan(locator, count));
+    }
+
+    // Waits for a non-null, non-false value; description names what is waited for and is
+    // the history key, e.g. "visible By.cssSelector: main"
+    public <T> T until(String description, Function<? super WebDriver, T> condition) {
+        return until(description, condition, defaultCap);
+    }
+
+    public <T> T until(String description, Function<? super WebDriver, T> condition, Duration cap) {
+        String key = target + " | " + language + " | " + description;
+        long p99 = learned(key, 99);
+        Duration timeout = getTimeout(key, cap);
+        long start = System.nanoTime();
+        try {
+            T result = new FluentWait<>(driver)
+                .withTimeout(timeout)
+                .pollingEvery(getPolling(key))
+                .until(condition);
+            observe(key, System.nanoTime() - start, p99);
+            return result;
+        } catch (TimeoutException e) {
+            observe(key, timeout.toNanos(), p99);
+            throw new TimeoutException("Waited " + timeout.toMillis() + " ms for " + description
+                + (p99 >= 0 ? " (p99 " + p99 + " ms)" : ""), e);
+        }
+    }
+
+    private Duration getTimeout(String key, Duration cap) {
+        long p99 = learned(key, 99);
+        if (p99 < 0) {
+            return cap;
+        }
+        long millis = Math.max(minTimeoutMs, Math.round(p99 * multiplier));
+        return Duration.ofMillis(Math.min(cap.toMillis(), millis));
+    }
+
+    private Duration getPolling(String key) {
+        long p50 = learned(key, 50);
+        if (p50 < 0) {
+            return Duration.ofMillis(defaultPollMs);
+        }
+        return Duration.ofMillis(Math.max(MIN_POLL_MS, Math.min(defaultPollMs, p50 / 5)));
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    // Budgets learned against the stub would time out the live chatbot (and the other way
+    // round), so each target keeps its own. The stub listens on a new port every run, so it
+    // is one target whatever app.url says; anything else is keyed by app.url's host.
+    private static String target() {
+        if (ConfigManager.getBooleanProperty("stub.enabled", false)) {
+            return "stub";
+        }
+        String appUrl = ConfigManager.getAppUrl();
+        if (appUrl == null) {
+            return "";
+        }
+        try {
+            String host = URI.create(appUrl).getHost();
+            return host == null ? appUrl : host;
+        } catch (IllegalArgumentException e) {
+            return appUrl;
+        }
+    }
+
+    private long learned(String key, double percentile) {
+        return history.getSampleCount(key) < minSamples ? -1 : history.getPercentile(key, percentile);
+    }
+
+    // Compared against the p99 from before this wait, so one slow wait cannot hide itself
+    private void observe(String key, long nanos, long p99) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        history.record(key, millis);
+        if (p99 >= 0 && millis > p99) {
+            PhaseMetrics.observe(PhaseMetrics.SLOW_WAIT, nanos);
+            System.out.println("Slow wait: " + key + " took " + millis + "ms (p99 " + p99 + "ms)");
+        }
+    }
+}
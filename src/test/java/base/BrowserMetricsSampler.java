@@ -0,0 +1,149 @@
+package base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class BrowserMetricsSampler {
+    // Point-in-time browser health for soak runs: attached DOM nodes from the page, and
+    // Chrome's own counters from CDP Performance.getMetrics (JS heap, all live nodes including
+    // detached ones, cumulative layout and style-recalc time). Raw commands, as in
+    // StreamTimingRecorder, so no versioned devtools package is needed. Without CDP the heap
+    // falls back to performance.memory and the other counters read -1.
+
+    private static final String DOM_SCRIPT =
+        "var m = performance.memory;" +
+        "return [document.getElementsByTagName('*').length, m ? m.usedJSHeapSize : -1, m ? m.totalJSHeapSize : -1];";
+    private static final Function<JsonInput, Map<String, Object>> RESULT = input -> input.read(Json.MAP_TYPE);
+
+    private final WebDriver driver;
+    private final DevTools devTools;
+    private final boolean collectGarbage;
+
+    private BrowserMetricsSampler(WebDriver driver, DevTools devTools, boolean collectGarbage) {
+        this.driver = driver;
+        this.devTools = devTools;
+        this.collectGarbage = collectGarbage;
+    }
+
+    // collectGarbage forces a major GC before each sample, so the heap reads as retained
+    // memory rather than wherever the collector happened to be
+    public static BrowserMetricsSampler attach(WebDriver driver, boolean collectGarbage) {
+        DevTools devTools = null;
+        if (driver instanceof HasDevTools) {
+            try {
+                devTools = ((HasDevTools) driver).getDevTools();
+                devTools.createSessionIfThereIsNotOne();
+                devTools.send(new Command<Void>("Performance.enable", Map.of()));
+            } catch (RuntimeException e) {
+                System.out.println("CDP performance metrics unavailable: " + e.getMessage());
+                devTools = null;
+            }
+        }
+        return new BrowserMetricsSampler(driver, devTools, collectGarbage);
+    }
+
+    public boolean hasDevTools() {
+        return devTools != null;
+    }
+
+    public Sample sample() {
+        Map<String, Double> metrics = new HashMap<>();
+        if (devTools != null) {
+            try {
+                if (collectGarbage) {
+                    devTools.send(new Command<Void>("HeapProfiler.collectGarbage", Map.of()));
+                }
+                Map<String, Object> result = devTools.send(new Command<>("Performance.getMetrics", Map.of(), RESULT));
+                for (Object item : (List<?>) result.get("metrics")) {
+                    Map<?, ?> metric = (Map<?, ?>) item;
+                    metrics.put(String.valueOf(metric.get("name")), ((Number) metric.get("value")).doubleValue());
+                }
+            } catch (RuntimeException e) {
+                System.out.println("CDP performance sample failed: " + e.getMessage());
+            }
+        }
+        List<?> page = (List<?>) ((JavascriptExecutor) driver).executeScript(DOM_SCRIPT);
+        long domNodes = ((Number) page.get(0)).longValue();
+        long heapUsed = metrics.containsKey("JSHeapUsedSize") ? metrics.get("JSHeapUsedSize").longValue()
+            : ((Number) page.get(1)).longValue();
+        long heapTotal = metrics.containsKey("JSHeapTotalSize") ? metrics.get("JSHeapTotalSize").longValue()
+            : ((Number) page.get(2)).longValue();
+        return new Sample(domNodes, metrics.getOrDefault("Nodes", -1d).longValue(), heapUsed, heapTotal,
+            micros(metrics, "LayoutDuration"), micros(metrics, "RecalcStyleDuration"),
+            metrics.getOrDefault("LayoutCount", -1d).longValue());
+    }
+
+    // CDP reports durations in seconds
+    private static long micros(Map<String, Double> metrics, String name) {
+        Double value = metrics.get(name);
+        return value == null ? -1 : Math.round(value * 1_000_000);
+    }
+
+    public static final class Sample {
+        private final long domNodes;
+        private final long liveNodes;
+        private final long heapUsedBytes;
+        private final long heapTotalBytes;
+        private final long layoutMicros;
+        private final long recalcStyleMicros;
+        private final long layoutCount;
+
+        Sample(long domNodes, long liveNodes, long heapUsedBytes, long heapTotalBytes, long layoutMicros,
+               long recalcStyleMicros, long layoutCount) {
+            this.domNodes = domNodes;
+            this.liveNodes = liveNodes;
+            this.heapUsedBytes = heapUsedBytes;
+            this.heapTotalBytes = heapTotalBytes;
+            this.layoutMicros = layoutMicros;
+            this.recalcStyleMicros = recalcStyleMicros;
+            this.layoutCount = layoutCount;
+        }
+
+        // Elements attached to the document
+        public long getDomNodes() {
+            return domNodes;
+        }
+
+        // Every node Chrome keeps alive, detached ones included; -1 without CDP
+        public long getLiveNodes() {
+            return liveNodes;
+        }
+
+        // -1 when neither CDP nor performance.memory is available
+        public long getHeapUsedBytes() {
+            return heapUsedBytes;
+        }
+
+        public long getHeapTotalBytes() {
+            return heapTotalBytes;
+        }
+
+        // Cumulative since the page loaded; -1 without CDP
+        public long getLayoutMicros() {
+            return layoutMicros;
+        }
+
+        public long getRecalcStyleMicros() {
+            return recalcStyleMicros;
+        }
+
+        public long getLayoutCount() {
+            return layoutCount;
+        }
+
+        // Layout plus style recalculation, the part of rendering that grows with the DOM
+        public long getRenderMicros() {
+            return layoutMicros < 0 || recalcStyleMicros < 0 ? -1 : layoutMicros + recalcStyleMicros;
+        }
+    }
+}
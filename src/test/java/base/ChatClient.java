@@ -0,0 +1,60 @@
+package base;
+
+import utils.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+public interface ChatClient extends AutoCloseable {
+
+    // Sends the prompt into the current conversation and blocks until the reply is complete
+    ChatResponse send(String prompt);
+
+    // Hands each chunk to the listener as it arrives; returning false abandons the rest of
+    // the reply. Backends that cannot observe chunks deliver the finished text once.
+    default ChatResponse send(String prompt, Predicate<CharSequence> onChunk) {
+        ChatResponse response = send(prompt);
+        onChunk.test(response.getText());
+        return response;
+    }
+
+    // Sends every prompt in a conversation of its own and returns the replies in prompt
+    // order; onChunk supplies the chunk listener for the prompt at each index
+    default List<ChatResponse> sendAll(List<String> prompts, IntFunction<Predicate<CharSequence>> onChunk) {
+        List<ChatResponse> responses = new ArrayList<>(prompts.size());
+        for (int i = 0; i < prompts.size(); i++) {
+            newConversation();
+            responses.add(send(prompts.get(i), onChunk.apply(i)));
+        }
+        return responses;
+    }
+
+    void newConversation();
+
+    @Override
+    void close();
+
+    static String getBackend() {
+        return ConfigManager.getProperty("chat.backend", "selenium").toLowerCase();
+    }
+
+    static boolean isHttpBackend() {
+        return "http".equals(getBackend());
+    }
+
+    // live (default), record (live + write to the response store) or replay (store only)
+    static String getMode() {
+        return ConfigManager.getProperty("chat.mode", "live").toLowerCase();
+    }
+
+    static boolean isReplayMode() {
+        return "replay".equals(getMode());
+    }
+
+    // Whether content tests need a browser session to reach the chatbot
+    static boolean usesBrowser() {
+        return !isHttpBackend() && !isReplayMode();
+    }
+}
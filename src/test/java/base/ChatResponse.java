@@ -0,0 +1,62 @@
+package base;
+
+public final class ChatResponse {
+    private final String prompt;
+    private final String text;
+    private final long timeToFirstTokenMillis;
+    private final long totalMillis;
+    private final int chunkCount;
+    private final boolean complete;
+    private final StreamTiming timing;
+
+    public ChatResponse(String prompt, String text, long timeToFirstTokenMillis, long totalMillis,
+                        int chunkCount, boolean complete) {
+        this(prompt, text, timeToFirstTokenMillis, totalMillis, chunkCount, complete, null);
+    }
+
+    public ChatResponse(String prompt, String text, long timeToFirstTokenMillis, long totalMillis,
+                        int chunkCount, boolean complete, StreamTiming timing) {
+        this.prompt = prompt;
+        this.text = text == null ? "" : text;
+        this.timeToFirstTokenMillis = timeToFirstTokenMillis;
+        this.totalMillis = totalMillis;
+        this.chunkCount = chunkCount;
+        this.complete = complete;
+        this.timing = timing;
+    }
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean hasText() {
+        return !text.trim().isEmpty();
+    }
+
+    // -1 when the backend cannot observe individual chunks
+    public long getTimeToFirstTokenMillis() {
+        return timeToFirstTokenMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    // False when the reply timed out or the stream ended without its terminator
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // Per-chunk arrival times, or null when the backend could not observe the stream
+    public StreamTiming getTiming() {
+        return timing;
+    }
+}
@@ -0,0 +1,208 @@
+package base;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import utils.ConfigManager;
+import utils.PhaseMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class DriverPool {
+    // Browser sessions are kept alive for the whole JVM, reset between tests
+    // and evicted when they stop responding
+    private static final int POOL_SIZE = Math.max(1, ConfigManager.getIntProperty("driver.pool.size", ConfigManager.getSuiteThreadCount()));
+    private static final int CHECKOUT_TIMEOUT = ConfigManager.getIntProperty("driver.pool.checkout.timeout", 300);
+
+    private static final BlockingDeque<WebDriver> idleDrivers = new LinkedBlockingDeque<>();
+    private static final Set<WebDriver> liveDrivers = ConcurrentHashMap.newKeySet();
+    private static final Semaphore checkoutPermits = new Semaphore(POOL_SIZE, true);
+
+    private static volatile boolean driverBinaryResolved;
+    private static volatile boolean shutdown;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DriverPool::shutdown, "driver-pool-shutdown"));
+    }
+
+    public static WebDriver checkout() {
+        if (shutdown) {
+            throw new IllegalStateException("Driver pool has been shut down");
+        }
+        // Pool wait, session reset or browser launch; stopped before the app URL loads
+        PhaseMetrics.Timer driverStart = PhaseMetrics.time(PhaseMetrics.DRIVER_START);
+        try {
+            if (!checkoutPermits.tryAcquire(CHECKOUT_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Timed out waiting for a free browser session (pool size " + POOL_SIZE + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a browser session", e);
+        }
+
+        try {
+            WebDriver driver;
+            while ((driver = idleDrivers.pollFirst()) != null) {
+                if (isHealthy(driver) && resetSession(driver, driverStart)) {
+                    return driver;
+                }
+                evict(driver);
+            }
+            driver = createDriver();
+            driverStart.close();
+            try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.PAGE_LOAD)) {
+                driver.get(ConfigManager.getAppUrl());
+            } catch (WebDriverException e) {
+                evict(driver);
+                throw e;
+            }
+            return driver;
+        } catch (RuntimeException e) {
+            checkoutPermits.release();
+            throw e;
+        }
+    }
+
+    public static void release(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        try {
+            if (!shutdown && isHealthy(driver)) {
+                idleDrivers.offerFirst(driver);
+            } else {
+                evict(driver);
+            }
+        } finally {
+            checkoutPermits.release();
+        }
+    }
+
+    public static void evict(WebDriver driver) {
+        liveDrivers.remove(driver);
+        idleDrivers.remove(driver);
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            // Session is already gone
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        List<WebDriver> drivers = new ArrayList<>(liveDrivers);
+        for (WebDriver driver : drivers) {
+            evict(driver);
+        }
+    }
+
+    public static int getPoolSize() {
+        return POOL_SIZE;
+    }
+
+    private static boolean isHealthy(WebDriver driver) {
+        try {
+            if (driver.getWindowHandles().isEmpty()) {
+                return false;
+            }
+            Object state = ((JavascriptExecutor) driver).executeScript("return document.readyState");
+            return state != null;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private static boolean resetSession(WebDriver driver, PhaseMetrics.Timer driverStart) {
+        try {
+            // Close any extra tabs left behind by the previous test
+            String firstHandle = driver.getWindowHandles().iterator().next();
+            for (String handle : driver.getWindowHandles()) {
+                if (!handle.equals(firstHandle)) {
+                    driver.switchTo().window(handle);
+                    driver.close();
+                }
+            }
+            driver.switchTo().window(firstHandle);
+
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript(
+                "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+
+            // Reloading the app URL starts a new conversation
+            driverStart.close();
+            try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.PAGE_LOAD)) {
+                driver.get(ConfigManager.getAppUrl());
+            }
+            return true;
+        } catch (WebDriverException e) {
+            System.out.println("Evicting browser session that failed to reset: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static WebDriver createDriver() {
+        resolveDriverBinary();
+
+        ChromeOptions options = new ChromeOptions();
+
+        // Mobile emulation for responsive testing
+        if (ConfigManager.isMobileTesting()) {
+            Map<String, Object> mobileEmulation = new HashMap<>();
+            mobileEmulation.put("deviceName", "iPhone 12");
+            options.setExperimentalOption("mobileEmulation", mobileEmulation);
+        }
+
+        // Common stable options
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--window-size=1920,1080");
+        options.addArguments("--disable-extensions");
+        options.addArguments("--disable-popup-blocking");
+        options.addArguments("--disable-notifications");
+        // Background tabs keep streaming at full speed when prompts fan out over tabs
+        options.addArguments("--disable-background-timer-throttling");
+        options.addArguments("--disable-backgrounding-occluded-windows");
+        options.addArguments("--disable-renderer-backgrounding");
+
+        // Remove headless for debugging, add back for CI/CD
+        if (ConfigManager.getBooleanProperty("browser.headless", false)) {
+            options.addArguments("--headless=new");
+        }
+
+        WebDriver driver = new ChromeDriver(options);
+        // No implicit wait: an empty findElements returns at once and AdaptiveWait does the waiting
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(ConfigManager.getIntProperty("timeout.page.load", 60)));
+        liveDrivers.add(driver);
+        return driver;
+    }
+
+    private static void resolveDriverBinary() {
+        if (driverBinaryResolved) {
+            return;
+        }
+        synchronized (DriverPool.class) {
+            if (!driverBinaryResolved) {
+                WebDriverManager.chromedriver().setup();
+                driverBinaryResolved = true;
+            }
+        }
+    }
+}
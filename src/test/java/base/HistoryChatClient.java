@@ -0,0 +1,55 @@
+package base;
+
+import utils.RunHistory;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+public class HistoryChatClient implements ChatClient {
+    // Notes the timing and size of every reply for the run history; RunHistoryListener
+    // attaches the test's verdict when the method finishes
+
+    private final ChatClient delegate;
+    private final String language;
+
+    public HistoryChatClient(ChatClient delegate, String language) {
+        this.delegate = delegate;
+        this.language = language;
+    }
+
+    @Override
+    public ChatResponse send(String prompt) {
+        return observe(prompt, delegate.send(prompt));
+    }
+
+    @Override
+    public ChatResponse send(String prompt, Predicate<CharSequence> onChunk) {
+        return observe(prompt, delegate.send(prompt, onChunk));
+    }
+
+    @Override
+    public List<ChatResponse> sendAll(List<String> prompts, IntFunction<Predicate<CharSequence>> onChunk) {
+        List<ChatResponse> responses = delegate.sendAll(prompts, onChunk);
+        for (int i = 0; i < responses.size(); i++) {
+            observe(prompts.get(i), responses.get(i));
+        }
+        return responses;
+    }
+
+    private ChatResponse observe(String prompt, ChatResponse response) {
+        RunHistory.observePrompt(prompt, language, response.getTimeToFirstTokenMillis(), response.getTotalMillis(),
+            response.getChunkCount(), response.getText().length(), response.isComplete());
+        return response;
+    }
+
+    @Override
+    public void newConversation() {
+        delegate.newConversation();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
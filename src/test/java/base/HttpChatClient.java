@@ -0,0 +1,338 @@
+package base;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import utils.ConfigManager;
+import utils.PhaseMetrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+public class HttpChatClient implements ChatClient {
+    // Talks to the chat API directly and parses its server-sent event stream.
+    // Expected contract: POST {prompt, language, conversationId} -> text/event-stream
+    // of "data: {...}" events carrying a text delta, terminated by "data: [DONE]".
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(ConfigManager.getIntProperty("timeout.explicit", 30)))
+            .build();
+    // HttpRequest.timeout only covers the response headers; this closes bodies that stall mid-stream
+    private static final ScheduledExecutorService readDeadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "http-read-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final URI endpoint;
+    private final String language;
+    private final Duration timeout = Duration.ofSeconds(ConfigManager.getIntProperty("timeout.response", 60));
+    private volatile String conversationId;
+
+    public HttpChatClient(String language) {
+        this(ConfigManager.getProperty("chat.api.url", ""), language);
+    }
+
+    public HttpChatClient(String endpoint, String language) {
+        if (endpoint == null || endpoint.isEmpty()) {
+            throw new IllegalStateException("chat.api.url must be set when chat.backend=http");
+        }
+        this.endpoint = URI.create(endpoint);
+        this.language = language;
+    }
+
+    @Override
+    public ChatResponse send(String prompt) {
+        return send(prompt, chunk -> true);
+    }
+
+    // Stops reading and closes the connection as soon as the listener rejects a chunk
+    @Override
+    public ChatResponse send(String prompt, Predicate<CharSequence> onChunk) {
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.THROTTLE)) {
+            RateLimiter.shared().acquire();
+        }
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.SEND)) {
+            response = httpClient.send(buildRequest(prompt), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            throw new RuntimeException("Chat API request failed for prompt: " + prompt, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for chat API", e);
+        }
+        if (response.statusCode() != 200) {
+            drain(response.body());
+            throw new RuntimeException("Chat API returned HTTP " + response.statusCode());
+        }
+        response.headers().firstValue("X-Conversation-Id").ifPresent(id -> conversationId = id);
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.WAIT_RESPONSE)) {
+            return readEventStream(prompt, response.body(), start, onChunk);
+        }
+    }
+
+    @Override
+    public void newConversation() {
+        conversationId = null;
+    }
+
+    @Override
+    public void close() {
+        conversationId = null;
+    }
+
+    HttpRequest buildRequest(String prompt) {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("prompt", prompt);
+        body.put("language", language);
+        if (conversationId != null) {
+            body.put("conversationId", conversationId);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8));
+        String apiKey = ConfigManager.getProperty("chat.api.key", "");
+        if (!apiKey.isEmpty()) {
+            request.header("Authorization", "Bearer " + apiKey);
+        }
+        return request.build();
+    }
+
+    // Non-blocking variant for load runs: lines are parsed as they arrive on the
+    // client's selector thread, so an in-flight reply holds no thread of its own.
+    // Bypasses the shared RateLimiter; the caller's arrival rate governs the load.
+    public CompletableFuture<ChatResponse> sendAsync(String prompt) {
+        long start = System.nanoTime();
+        EventStream stream = new EventStream(start, chunk -> true);
+        HttpResponse.BodyHandler<EventStream> handler = info -> {
+            if (info.statusCode() != 200) {
+                stream.fail("Chat API returned HTTP " + info.statusCode());
+                return HttpResponse.BodySubscribers.replacing(stream);
+            }
+            info.headers().firstValue("X-Conversation-Id").ifPresent(id -> conversationId = id);
+            return HttpResponse.BodySubscribers.fromLineSubscriber(stream, s -> s, StandardCharsets.UTF_8, null);
+        };
+        // Same read deadline as send(); a stalled reply fails with a TimeoutException and its
+        // connection is released
+        return httpClient.sendAsync(buildRequest(prompt), handler)
+                .thenApply(response -> response.body().toResponse(prompt))
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        stream.cancel();
+                    }
+                });
+    }
+
+    // The whole reply must arrive within timeout.response of the request; a stream that
+    // stalls is closed at that deadline and returned as an incomplete reply
+    private ChatResponse readEventStream(String prompt, InputStream body, long start, Predicate<CharSequence> onChunk) {
+        EventStream stream = new EventStream(start, onChunk);
+        AtomicBoolean expired = new AtomicBoolean();
+        long remaining = timeout.toNanos() - (System.nanoTime() - start);
+        ScheduledFuture<?> deadline = readDeadlines.schedule(() -> {
+            expired.set(true);
+            try {
+                body.close();
+            } catch (IOException e) {
+                // The reader sees the stream end either way
+            }
+        }, Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            // isDone first: after [DONE], an error event or a rejected chunk nothing more is
+            // read, so the connection closes at once instead of waiting for another line
+            while (!stream.isDone() && (line = reader.readLine()) != null) {
+                stream.onNext(line);
+            }
+        } catch (IOException e) {
+            if (!expired.get()) {
+                throw new RuntimeException("Chat API stream broke after " + stream.chunks + " chunks", e);
+            }
+        } finally {
+            deadline.cancel(false);
+        }
+        if (expired.get() && !stream.isDone()) {
+            System.out.println("Chat API stream stalled; gave up after " + timeout.toMillis() + " ms and "
+                + stream.chunks + " chunks");
+        }
+        return stream.toResponse(prompt);
+    }
+
+    // SSE framing state for one reply; fed line by line from either send path
+    private final class EventStream implements Flow.Subscriber<String> {
+        private final long start;
+        private final Predicate<CharSequence> onChunk;
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder data = new StringBuilder();
+        private String eventType = "message";
+        private long firstChunkNanos = -1;
+        private long endNanos = -1;
+        private long[] chunkOffsetsMicros = new long[64];
+        private int chunks;
+        private boolean complete;
+        private boolean abandoned;
+        private String error;
+        private volatile Flow.Subscription subscription;
+
+        EventStream(long start, Predicate<CharSequence> onChunk) {
+            this.start = start;
+            this.onChunk = onChunk;
+        }
+
+        boolean isDone() {
+            return complete || abandoned || error != null;
+        }
+
+        void fail(String message) {
+            error = message;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (isDone()) {
+                return; // Anything after [DONE], an error event or abandonment is ignored
+            }
+            if (line.isEmpty()) {
+                // Blank line dispatches the buffered event
+                if (data.length() > 0) {
+                    dispatch(data.toString());
+                    data.setLength(0);
+                }
+                eventType = "message";
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(stripFieldValue(line, 5));
+            } else if (line.startsWith("event:")) {
+                eventType = stripFieldValue(line, 6);
+            }
+            // "id:", "retry:" and ":" comment lines are ignored
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (error == null) {
+                error = "Chat API stream broke after " + chunks + " chunks: " + throwable;
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            // Completion is signalled by [DONE]; a bare close leaves the reply incomplete
+        }
+
+        private void dispatch(String payload) {
+            if ("[DONE]".equals(payload)) {
+                complete = true;
+                endNanos = System.nanoTime();
+                return;
+            }
+            if ("error".equals(eventType)) {
+                error = "Chat API stream error: " + payload;
+                return;
+            }
+            String delta = extractDelta(payload);
+            if (!delta.isEmpty()) {
+                long now = System.nanoTime();
+                if (firstChunkNanos < 0) {
+                    firstChunkNanos = now;
+                }
+                if (chunks == chunkOffsetsMicros.length) {
+                    chunkOffsetsMicros = Arrays.copyOf(chunkOffsetsMicros, chunks * 2);
+                }
+                chunkOffsetsMicros[chunks] = (now - start) / 1000;
+                text.append(delta);
+                chunks++;
+                if (!onChunk.test(delta)) {
+                    abandoned = true;
+                    endNanos = now;
+                }
+            }
+        }
+
+        ChatResponse toResponse(String prompt) {
+            if (error != null) {
+                throw new RuntimeException(error);
+            }
+            long end = endNanos < 0 ? System.nanoTime() : endNanos;
+            long ttft = firstChunkNanos < 0 ? -1 : (firstChunkNanos - start) / 1_000_000;
+            // Each SSE event carries one delta, so chunks and tokens coincide here
+            StreamTiming timing = new StreamTiming(Arrays.copyOf(chunkOffsetsMicros, chunks), chunks,
+                complete ? (end - start) / 1000 : -1);
+            return new ChatResponse(prompt, text.toString(), ttft, (end - start) / 1_000_000, chunks, complete, timing);
+        }
+    }
+
+    private String extractDelta(String payload) {
+        JsonNode event;
+        try {
+            event = mapper.readTree(payload);
+        } catch (IOException e) {
+            return payload; // Plain-text event
+        }
+        if (!event.isObject()) {
+            return event.isTextual() ? event.asText() : payload;
+        }
+        if (event.hasNonNull("conversationId")) {
+            conversationId = event.get("conversationId").asText();
+        }
+        for (String field : new String[]{"delta", "text", "content"}) {
+            if (event.hasNonNull(field) && event.get(field).isTextual()) {
+                return event.get(field).asText();
+            }
+        }
+        // OpenAI-style {"choices":[{"delta":{"content":"..."}}]}
+        JsonNode content = event.path("choices").path(0).path("delta").path("content");
+        return content.isTextual() ? content.asText() : "";
+    }
+
+    private static String stripFieldValue(String line, int prefixLength) {
+        String value = line.substring(prefixLength);
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+
+    private static void drain(InputStream body) {
+        try (InputStream in = body) {
+            in.readAllBytes();
+        } catch (IOException e) {
+            // Nothing useful to report beyond the status code
+        }
+    }
+}
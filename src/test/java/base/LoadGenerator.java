@@ -0,0 +1,207 @@
+package base;
+
+import utils.ConfigManager;
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadGenerator {
+    // Open-model load: conversations start on a Poisson schedule regardless of how
+    // many are still running, so a slow server shows up as latency rather than as a
+    // politely reduced request rate. Every turn is an async HTTP exchange, so in-flight
+    // conversations cost a future each instead of a thread.
+
+    private final String endpoint;
+    private final String language;
+    private final List<String> prompts;
+    private final int conversations;
+    private final int turnsPerConversation;
+    private final double arrivalsPerSecond;
+    private final int maxInFlight;
+    private final long seed;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstToken = new LatencyHistogram();
+    private final AtomicLong completedTurns = new AtomicLong();
+    private final AtomicLong failedTurns = new AtomicLong();
+    private final AtomicLong rejectedConversations = new AtomicLong();
+
+    public LoadGenerator(String endpoint, String language, List<String> prompts, int conversations,
+                         int turnsPerConversation, double arrivalsPerSecond, int maxInFlight, long seed) {
+        if (prompts.isEmpty()) {
+            throw new IllegalArgumentException("Load run needs at least one prompt");
+        }
+        this.endpoint = endpoint;
+        this.language = language;
+        this.prompts = List.copyOf(prompts);
+        this.conversations = conversations;
+        this.turnsPerConversation = Math.max(1, turnsPerConversation);
+        this.arrivalsPerSecond = arrivalsPerSecond;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.seed = seed;
+    }
+
+    public static LoadGenerator fromConfig(String endpoint, String language, List<String> prompts) {
+        return new LoadGenerator(endpoint, language, prompts,
+            ConfigManager.getIntProperty("load.conversations", 50),
+            ConfigManager.getIntProperty("load.turns.per.conversation", 3),
+            Double.parseDouble(ConfigManager.getProperty("load.arrival.rate.per.second", "5")),
+            ConfigManager.getIntProperty("load.max.in.flight", 1000),
+            Long.parseLong(ConfigManager.getProperty("load.seed", "42")));
+    }
+
+    // Blocks until every started conversation has finished or the timeout expires
+    public Result run(long timeoutSeconds) {
+        Random random = new Random(seed);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<CompletableFuture<Void>> running = new ArrayList<>(conversations);
+        long start = System.nanoTime();
+        long nextArrival = start;
+
+        for (int c = 0; c < conversations; c++) {
+            sleepUntil(nextArrival);
+            if (inFlight.tryAcquire()) {
+                running.add(runConversation(c).whenComplete((ignored, error) -> inFlight.release()));
+            } else {
+                // Over the in-flight cap: shed instead of queueing so arrivals stay on schedule
+                rejectedConversations.incrementAndGet();
+            }
+            if (arrivalsPerSecond > 0) {
+                // Exponential inter-arrival times give a Poisson arrival process
+                double gapSeconds = -Math.log(1 - random.nextDouble()) / arrivalsPerSecond;
+                nextArrival += (long) (gapSeconds * TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+
+        boolean timedOut = false;
+        try {
+            CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            timedOut = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for load run", e);
+        } catch (Exception e) {
+            // Individual failures are already counted per turn
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Result(latency, timeToFirstToken, completedTurns.get(), failedTurns.get(),
+            rejectedConversations.get(), elapsedMillis, timedOut);
+    }
+
+    private CompletableFuture<Void> runConversation(int conversation) {
+        HttpChatClient client = new HttpChatClient(endpoint, language);
+        AtomicInteger completed = new AtomicInteger();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int turn = 0; turn < turnsPerConversation; turn++) {
+            String prompt = prompts.get((conversation + turn) % prompts.size());
+            chain = chain.thenCompose(ignored -> client.sendAsync(prompt)).thenAccept(response -> {
+                recordTurn(response);
+                completed.incrementAndGet();
+            });
+        }
+        // A failed turn ends its conversation; later turns would have no context to build on,
+        // so they count as failed too and the error rate stays per turn
+        return chain.handle((ignored, error) -> {
+            if (error != null) {
+                failedTurns.addAndGet(turnsPerConversation - completed.get());
+                System.out.println("Load conversation " + conversation + " failed: " + rootMessage(error));
+            }
+            client.close();
+            return null;
+        });
+    }
+
+    private void recordTurn(ChatResponse response) {
+        if (!response.isComplete()) {
+            throw new RuntimeException("Reply ended without [DONE] after " + response.getChunkCount() + " chunks");
+        }
+        latency.record(response.getTotalMillis());
+        if (response.getTimeToFirstTokenMillis() >= 0) {
+            timeToFirstToken.record(response.getTimeToFirstTokenMillis());
+        }
+        completedTurns.incrementAndGet();
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long wait = deadlineNanos - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while pacing load arrivals", e);
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage() == null ? root.toString() : root.getMessage();
+    }
+
+    public static final class Result {
+        private final LatencyHistogram latency;
+        private final LatencyHistogram timeToFirstToken;
+        private final long completedTurns;
+        private final long failedTurns;
+        private final long rejectedConversations;
+        private final long elapsedMillis;
+        private final boolean timedOut;
+
+        Result(LatencyHistogram latency, LatencyHistogram timeToFirstToken, long completedTurns, long failedTurns,
+               long rejectedConversations, long elapsedMillis, boolean timedOut) {
+            this.latency = latency;
+            this.timeToFirstToken = timeToFirstToken;
+            this.completedTurns = completedTurns;
+            this.failedTurns = failedTurns;
+            this.rejectedConversations = rejectedConversations;
+            this.elapsedMillis = elapsedMillis;
+            this.timedOut = timedOut;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public LatencyHistogram getTimeToFirstToken() {
+            return timeToFirstToken;
+        }
+
+        public long getCompletedTurns() {
+            return completedTurns;
+        }
+
+        // Includes the turns a failed conversation never got to send
+        public long getFailedTurns() {
+            return failedTurns;
+        }
+
+        public long getRejectedConversations() {
+            return rejectedConversations;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public double getThroughputPerSecond() {
+            return elapsedMillis == 0 ? 0 : completedTurns * 1000.0 / elapsedMillis;
+        }
+    }
+}
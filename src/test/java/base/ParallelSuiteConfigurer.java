@@ -0,0 +1,34 @@
+package base;
+
+import org.testng.IAlterSuiteListener;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+
+import java.util.List;
+
+public class ParallelSuiteConfigurer implements IAlterSuiteListener {
+    // Spreads suite.thread.count workers over the <test> blocks (en/ar) and the
+    // classes inside each of them, instead of the fixed counts in testng.xml
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        int workers = ConfigManager.getSuiteThreadCount();
+        for (XmlSuite suite : suites) {
+            List<XmlTest> tests = suite.getTests();
+            if (tests.isEmpty()) {
+                continue;
+            }
+            int perTest = Math.max(1, workers / tests.size());
+
+            suite.setParallel(XmlSuite.ParallelMode.TESTS);
+            suite.setThreadCount(Math.min(workers, tests.size()));
+            for (XmlTest test : tests) {
+                test.setParallel(XmlSuite.ParallelMode.CLASSES);
+                test.setThreadCount(perTest);
+            }
+            System.out.println(String.format("Running suite '%s' on %d workers (%d per test)",
+                suite.getName(), workers, perTest));
+        }
+    }
+}
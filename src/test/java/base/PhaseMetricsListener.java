@@ -0,0 +1,56 @@
+package base;
+
+import org.testng.IConfigurationListener;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import utils.PhaseMetrics;
+
+public class PhaseMetricsListener implements IConfigurationListener, IInvokedMethodListener, ISuiteListener {
+    // Labels phase timings with the test (and its language) the worker thread is serving.
+    // @BeforeMethod runs are attributed to the test they prepare, so driver start and
+    // page load land on the same series as the test's own phases.
+
+    private static final boolean ENABLED = PhaseMetrics.isEnabled();
+
+    @Override
+    public void beforeConfiguration(ITestResult result, ITestNGMethod testMethod) {
+        if (ENABLED) {
+            ITestNGMethod owner = testMethod != null ? testMethod : result.getMethod();
+            PhaseMetrics.bind(nameOf(owner), languageOf(result));
+        }
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        if (ENABLED && method.isTestMethod()) {
+            PhaseMetrics.bind(nameOf(method.getTestMethod()), languageOf(result));
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (ENABLED) {
+            PhaseMetrics.unbind();
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (ENABLED) {
+            PhaseMetrics.export();
+            System.out.println("Phase timings for " + suite.getName() + " written to " + PhaseMetrics.getOutputDirectory());
+        }
+    }
+
+    private static String nameOf(ITestNGMethod method) {
+        return method.getRealClass().getSimpleName() + "." + method.getMethodName();
+    }
+
+    private static String languageOf(ITestResult result) {
+        return result.getTestContext().getCurrentXmlTest().getParameter("language");
+    }
+}
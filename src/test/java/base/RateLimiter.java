@@ -0,0 +1,51 @@
+package base;
+
+import utils.ConfigManager;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiter {
+    // Shared by every worker so parallel browsers stay under the chatbot's throttling limit
+    private static final RateLimiter SHARED = new RateLimiter(
+        ConfigManager.getIntProperty("chat.rate.limit.per.minute", 0),
+        ConfigManager.getIntProperty("chat.rate.limit.burst", 1));
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+    private double storedPermits;
+    private long lastRefill;
+
+    public RateLimiter(int permitsPerMinute, int burst) {
+        this.permitsPerNano = permitsPerMinute <= 0 ? 0 : permitsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.maxPermits = Math.max(1, burst);
+        this.storedPermits = maxPermits;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public static RateLimiter shared() {
+        return SHARED;
+    }
+
+    public void acquire() {
+        if (permitsPerNano == 0) {
+            return; // Unlimited
+        }
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Takes one permit, possibly going into debt, and returns how long the caller must wait
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        storedPermits = Math.min(maxPermits, storedPermits + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        storedPermits -= 1;
+        return storedPermits >= 0 ? 0 : (long) (-storedPermits / permitsPerNano);
+    }
+}
@@ -0,0 +1,57 @@
+package base;
+
+import utils.RecordedResponse;
+import utils.ResponseStore;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+public class RecordingChatClient implements ChatClient {
+    // Passes prompts to the live backend and writes every reply to the response store
+
+    private final ChatClient delegate;
+    private final ResponseStore store;
+    private final String language;
+
+    public RecordingChatClient(ChatClient delegate, ResponseStore store, String language) {
+        this.delegate = delegate;
+        this.store = store;
+        this.language = language;
+    }
+
+    @Override
+    public ChatResponse send(String prompt) {
+        return record(prompt, delegate.send(prompt));
+    }
+
+    @Override
+    public ChatResponse send(String prompt, Predicate<CharSequence> onChunk) {
+        return record(prompt, delegate.send(prompt, onChunk));
+    }
+
+    @Override
+    public List<ChatResponse> sendAll(List<String> prompts, IntFunction<Predicate<CharSequence>> onChunk) {
+        List<ChatResponse> responses = delegate.sendAll(prompts, onChunk);
+        for (int i = 0; i < responses.size(); i++) {
+            record(prompts.get(i), responses.get(i));
+        }
+        return responses;
+    }
+
+    private ChatResponse record(String prompt, ChatResponse response) {
+        store.put(new RecordedResponse(prompt, language, response.getText(), response.getTimeToFirstTokenMillis(),
+            response.getTotalMillis(), response.getChunkCount(), response.isComplete(), System.currentTimeMillis()));
+        return response;
+    }
+
+    @Override
+    public void newConversation() {
+        delegate.newConversation();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,319 @@
+package base;
+
+import utils.ConfigManager;
+import utils.RunHistory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+public class RegressionDetector {
+    // Compares a run with the regression.baseline.runs runs before it in the run history:
+    //   java -cp <test classpath> base.RegressionDetector [history file] [run id]
+    // (newest run by default). Exits 1 when something regressed.
+    //
+    // Latency: each prompt is paired with its own baseline median, so a slow prompt does not
+    // mask a fast one. A one-sided Wilcoxon signed-rank test on log(current / baseline) per
+    // language asks whether the run is slower overall; it must also be slower by at least
+    // regression.min.slowdown (median ratio) to count. Pass rate: a one-sided Fisher exact test
+    // of this run's failures against the baseline's, per language and per test.
+
+    public static void main(String[] args) {
+        Path file = args.length > 0 ? Paths.get(args[0]) : RunHistory.getDefaultPath();
+        int baselineRuns = ConfigManager.getIntProperty("regression.baseline.runs", 10);
+        double alpha = Double.parseDouble(ConfigManager.getProperty("regression.alpha", "0.01"));
+        double minSlowdown = Double.parseDouble(ConfigManager.getProperty("regression.min.slowdown", "0.1"));
+
+        RunHistory.Run current;
+        List<RunHistory.Run> baseline = new ArrayList<>();
+        try (RunHistory history = RunHistory.open(file)) {
+            List<String> ids = history.getRunIds();
+            int position = args.length > 1 ? ids.indexOf(args[1]) : ids.size() - 1;
+            if (position < 0) {
+                System.out.println(ids.isEmpty() ? "No runs in " + file : "Run " + args[1] + " is not in " + file);
+                System.exit(2);
+            }
+            current = history.read(ids.get(position));
+            for (int i = Math.max(0, position - baselineRuns); i < position; i++) {
+                baseline.add(history.read(ids.get(i)));
+            }
+        }
+        System.out.println(String.format("Run %s: %d tests, %d prompts; baseline %d earlier run(s) from %s",
+            current.getId(), current.getTests().size(), current.getPrompts().size(), baseline.size(), file));
+        if (baseline.isEmpty()) {
+            System.out.println("Nothing to compare against yet");
+            return;
+        }
+
+        int regressions = 0;
+        regressions += compareLatency("time to first token", current, baseline,
+            RunHistory.PromptSample::getTimeToFirstTokenMillis, alpha, minSlowdown);
+        regressions += compareLatency("total response time", current, baseline,
+            RunHistory.PromptSample::getTotalMillis, alpha, minSlowdown);
+        regressions += comparePassRates(current, baseline, alpha);
+        printPhaseChanges(current, baseline);
+
+        System.out.println(regressions == 0 ? "No significant regressions" : regressions + " significant regression(s)");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static int compareLatency(String metric, RunHistory.Run current, List<RunHistory.Run> baseline,
+                                      ToLongFunction<RunHistory.PromptSample> value, double alpha, double minSlowdown) {
+        Map<String, List<Long>> baselineValues = new HashMap<>();
+        for (RunHistory.Run run : baseline) {
+            for (RunHistory.PromptSample sample : run.getPrompts()) {
+                if (usable(sample, value)) {
+                    baselineValues.computeIfAbsent(keyOf(sample), key -> new ArrayList<>()).add(value.applyAsLong(sample));
+                }
+            }
+        }
+        Map<String, List<Pair>> pairsByLanguage = new TreeMap<>();
+        for (RunHistory.PromptSample sample : current.getPrompts()) {
+            List<Long> history = baselineValues.get(keyOf(sample));
+            if (history != null && usable(sample, value)) {
+                double ratio = Math.max(1, value.applyAsLong(sample)) / (double) Math.max(1, median(history));
+                pairsByLanguage.computeIfAbsent(sample.getLanguage(), language -> new ArrayList<>()).add(new Pair(sample, ratio));
+            }
+        }
+
+        int regressions = 0;
+        for (Map.Entry<String, List<Pair>> entry : pairsByLanguage.entrySet()) {
+            List<Pair> pairs = entry.getValue();
+            double[] logRatios = pairs.stream().mapToDouble(pair -> Math.log(pair.ratio)).toArray();
+            double p = signedRankGreater(logRatios);
+            double medianRatio = Math.exp(medianOf(logRatios));
+            boolean regressed = p < alpha && medianRatio - 1 >= minSlowdown;
+            System.out.println(String.format(Locale.ROOT, "  %-12s %s %s: median %+.1f%% over %d prompts (Wilcoxon p=%.4f)",
+                regressed ? "[REGRESSION]" : "ok", entry.getKey(), metric, (medianRatio - 1) * 100, pairs.size(), p));
+            if (regressed) {
+                regressions++;
+                pairs.sort(Comparator.comparingDouble((Pair pair) -> pair.ratio).reversed());
+                for (Pair pair : pairs.subList(0, Math.min(3, pairs.size()))) {
+                    System.out.println(String.format(Locale.ROOT, "               %+.0f%% %s \"%s\"",
+                        (pair.ratio - 1) * 100, pair.sample.getTest(), abbreviate(pair.sample.getPrompt())));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    // Incomplete replies stopped early or timed out, so their timings say nothing about speed
+    private static boolean usable(RunHistory.PromptSample sample, ToLongFunction<RunHistory.PromptSample> value) {
+        return sample.isComplete() && value.applyAsLong(sample) >= 0;
+    }
+
+    private static int comparePassRates(RunHistory.Run current, List<RunHistory.Run> baseline, double alpha) {
+        Map<String, int[]> currentCounts = new TreeMap<>();
+        Map<String, int[]> baselineCounts = new HashMap<>();
+        countVerdicts(current, currentCounts);
+        for (RunHistory.Run run : baseline) {
+            countVerdicts(run, baselineCounts);
+        }
+
+        int regressions = 0;
+        for (Map.Entry<String, int[]> entry : currentCounts.entrySet()) {
+            int[] now = entry.getValue();
+            int[] before = baselineCounts.getOrDefault(entry.getKey(), new int[2]);
+            if (before[1] == 0 || now[0] * (long) before[1] <= before[0] * (long) now[1]) {
+                continue; // No baseline, or failing no more often than before
+            }
+            double p = fisherGreater(now[0], now[1], before[0], before[1]);
+            boolean regressed = p < alpha;
+            boolean perLanguage = !entry.getKey().contains("/");
+            if (regressed || perLanguage) {
+                System.out.println(String.format(Locale.ROOT, "  %-12s %s pass rate: %d/%d vs %d/%d before (Fisher p=%.4f)",
+                    regressed ? "[REGRESSION]" : "ok", entry.getKey(), now[1] - now[0], now[1],
+                    before[1] - before[0], before[1], p));
+            }
+            if (regressed) {
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    // {failures, decided} per language and per "language/test"; skipped tests are not decided
+    private static void countVerdicts(RunHistory.Run run, Map<String, int[]> counts) {
+        for (RunHistory.TestResult test : run.getTests()) {
+            if (test.getVerdict() == RunHistory.Verdict.SKIPPED) {
+                continue;
+            }
+            int failed = test.getVerdict() == RunHistory.Verdict.FAILED ? 1 : 0;
+            for (String key : new String[]{test.getLanguage(), test.getLanguage() + "/" + test.getTest()}) {
+                int[] count = counts.computeIfAbsent(key, k -> new int[2]);
+                count[0] += failed;
+                count[1]++;
+            }
+        }
+    }
+
+    // Mean time per phase is only kept as a run total, so this is a pointer, not a test
+    private static void printPhaseChanges(RunHistory.Run current, List<RunHistory.Run> baseline) {
+        Map<String, List<Double>> baselineMeans = new HashMap<>();
+        for (RunHistory.Run run : baseline) {
+            phaseMeans(run).forEach((key, mean) -> baselineMeans.computeIfAbsent(key, k -> new ArrayList<>()).add(mean));
+        }
+        // key -> {current mean, baseline median of means}
+        List<Map.Entry<String, double[]>> changes = new ArrayList<>();
+        phaseMeans(current).forEach((key, mean) -> {
+            List<Double> before = baselineMeans.get(key);
+            double typical = before == null ? 0 : medianOf(before.stream().mapToDouble(Double::doubleValue).toArray());
+            if (typical > 0) {
+                changes.add(Map.entry(key, new double[]{mean, typical}));
+            }
+        });
+        changes.sort(Comparator.comparingDouble((Map.Entry<String, double[]> change) -> change.getValue()[0] / change.getValue()[1]).reversed());
+        if (!changes.isEmpty()) {
+            System.out.println("  Largest phase changes (mean per run, not tested):");
+        }
+        for (Map.Entry<String, double[]> change : changes.subList(0, Math.min(5, changes.size()))) {
+            double[] means = change.getValue();
+            System.out.println(String.format(Locale.ROOT, "    %+.0f%% %s: %.1f ms vs %.1f ms",
+                (means[0] / means[1] - 1) * 100, change.getKey(), means[0] / 1000, means[1] / 1000));
+        }
+    }
+
+    // Mean microseconds per (language, test, phase)
+    private static Map<String, Double> phaseMeans(RunHistory.Run run) {
+        Map<String, long[]> totals = new HashMap<>();
+        for (RunHistory.PhaseTotal phase : run.getPhases()) {
+            long[] total = totals.computeIfAbsent(phase.getLanguage() + " " + phase.getTest() + " " + phase.getPhase(), k -> new long[2]);
+            total[0] += phase.getCount();
+            total[1] += phase.getMicros();
+        }
+        Map<String, Double> means = new HashMap<>();
+        totals.forEach((key, total) -> means.put(key, total[0] == 0 ? 0 : total[1] / (double) total[0]));
+        return means;
+    }
+
+    // One-sided p-value that the differences tend to be positive. Exact distribution for small
+    // samples without ties, otherwise the normal approximation with tie and continuity correction.
+    public static double signedRankGreater(double[] differences) {
+        double[] nonZero = Arrays.stream(differences).filter(d -> Math.abs(d) > 1e-12).toArray();
+        int n = nonZero.length;
+        if (n == 0) {
+            return 1;
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> Math.abs(nonZero[i])));
+        double positiveRankSum = 0;
+        double tieCorrection = 0;
+        boolean ties = false;
+        for (int start = 0; start < n; ) {
+            int stop = start;
+            while (stop + 1 < n && Math.abs(nonZero[order[stop + 1]]) == Math.abs(nonZero[order[start]])) {
+                stop++;
+            }
+            double rank = (start + stop + 2) / 2.0;
+            int tied = stop - start + 1;
+            if (tied > 1) {
+                ties = true;
+                tieCorrection += (Math.pow(tied, 3) - tied) / 48.0;
+            }
+            for (int i = start; i <= stop; i++) {
+                if (nonZero[order[i]] > 0) {
+                    positiveRankSum += rank;
+                }
+            }
+            start = stop + 1;
+        }
+
+        if (!ties && n <= 50) {
+            // counts[s] = number of sign assignments whose positive ranks sum to s
+            int maxSum = n * (n + 1) / 2;
+            double[] counts = new double[maxSum + 1];
+            counts[0] = 1;
+            for (int rank = 1; rank <= n; rank++) {
+                for (int sum = maxSum; sum >= rank; sum--) {
+                    counts[sum] += counts[sum - rank];
+                }
+            }
+            double atLeast = 0;
+            for (int sum = (int) positiveRankSum; sum <= maxSum; sum++) {
+                atLeast += counts[sum];
+            }
+            return atLeast / Math.pow(2, n);
+        }
+        double mean = n * (n + 1) / 4.0;
+        double variance = n * (n + 1) * (2.0 * n + 1) / 24.0 - tieCorrection;
+        double z = (positiveRankSum - mean - 0.5) / Math.sqrt(variance);
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    // P(at least currentFailed failures among current runs' tests) when both samples share one
+    // failure rate: the upper tail of the hypergeometric distribution
+    public static double fisherGreater(int currentFailed, int currentTotal, int baselineFailed, int baselineTotal) {
+        int population = currentTotal + baselineTotal;
+        int failures = currentFailed + baselineFailed;
+        double denominator = logChoose(population, currentTotal);
+        double p = 0;
+        for (int x = currentFailed; x <= Math.min(failures, currentTotal); x++) {
+            p += Math.exp(logChoose(failures, x) + logChoose(population - failures, currentTotal - x) - denominator);
+        }
+        return Math.min(1, p);
+    }
+
+    private static double logChoose(int n, int k) {
+        if (k < 0 || k > n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        k = Math.min(k, n - k);
+        double result = 0;
+        for (int i = 1; i <= k; i++) {
+            result += Math.log(n - k + i) - Math.log(i);
+        }
+        return result;
+    }
+
+    // Complementary error function, fractional error below 1.2e-7 everywhere (Chebyshev fit)
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+            + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+            + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+
+    private static long median(List<Long> values) {
+        long[] sorted = values.stream().mapToLong(Long::longValue).sorted().toArray();
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static double medianOf(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static String keyOf(RunHistory.PromptSample sample) {
+        return sample.getTest() + '\u0000' + sample.getLanguage() + '\u0000' + sample.getPrompt();
+    }
+
+    private static String abbreviate(String prompt) {
+        return prompt.length() <= 60 ? prompt : prompt.substring(0, 57) + "...";
+    }
+
+    private static final class Pair {
+        final RunHistory.PromptSample sample;
+        final double ratio;
+
+        Pair(RunHistory.PromptSample sample, double ratio) {
+            this.sample = sample;
+            this.ratio = ratio;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package base;
+
+import org.testng.SkipException;
+import utils.RecordedResponse;
+import utils.ResponseStore;
+
+public class ReplayChatClient implements ChatClient {
+    // Answers prompts from the response store so validators can be re-run without the chatbot
+
+    private final ResponseStore store;
+    private final String language;
+
+    public ReplayChatClient(ResponseStore store, String language) {
+        this.store = store;
+        this.language = language;
+    }
+
+    @Override
+    public ChatResponse send(String prompt) {
+        RecordedResponse recorded = store.get(prompt, language);
+        if (recorded == null) {
+            throw new SkipException("No recorded response for [" + language + "] " + prompt
+                + "; run once with chat.mode=record first");
+        }
+        return new ChatResponse(prompt, recorded.getText(), recorded.getTimeToFirstTokenMillis(),
+            recorded.getTotalMillis(), recorded.getChunkCount(), recorded.isComplete());
+    }
+
+    @Override
+    public void newConversation() {
+        // Stored replies are independent of conversation state
+    }
+
+    @Override
+    public void close() {
+        // The store is shared and closed at the end of the suite
+    }
+}
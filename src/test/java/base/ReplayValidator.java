@@ -0,0 +1,158 @@
+package base;
+
+import utils.CommonQuery;
+import utils.ConsistencyCase;
+import utils.CorpusStatistics;
+import utils.CrossLingualSimilarity;
+import utils.RecordedResponse;
+import utils.RelevanceScorer;
+import utils.ResponseStore;
+import utils.TestDataLoader;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplayValidator {
+    // Offline batch re-validation of every response in a store:
+    //   java -cp <test classpath> base.ReplayValidator [store directory]
+
+    public static void main(String[] args) {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : ResponseStore.getDefaultDirectory();
+        long start = System.nanoTime();
+
+        List<RecordedResponse> responses;
+        try (ResponseStore store = ResponseStore.open(directory)) {
+            responses = store.readAll();
+        }
+        long loaded = System.nanoTime();
+
+        Map<String, List<String>> keywordsByPrompt = new HashMap<>();
+        Map<String, String> arabicPromptByEnglish = new HashMap<>();
+        for (CommonQuery query : TestDataLoader.loadFullTestData().getCommonQueries()) {
+            keywordsByPrompt.put("en\u0000" + query.getEn(), query.getExpectedKeywords("en"));
+            keywordsByPrompt.put("ar\u0000" + query.getAr(), query.getExpectedKeywords("ar"));
+            arabicPromptByEnglish.put(query.getEn(), query.getAr());
+        }
+        for (ConsistencyCase consistencyCase : TestDataLoader.loadFullTestData().getMultilingualConsistency()) {
+            arabicPromptByEnglish.put(consistencyCase.getEn(), consistencyCase.getAr());
+        }
+
+        // IDF from the store being validated, not from the default store.path
+        RelevanceScorer scorer = new RelevanceScorer(CorpusStatistics.forResponses(responses),
+            RelevanceScorer.getDefaultThreshold());
+
+        AtomicInteger invalid = new AtomicInteger();
+        AtomicInteger hallucinated = new AtomicInteger();
+        responses.parallelStream().forEach(response -> {
+            List<String> keywords = keywordsByPrompt.getOrDefault(
+                response.getLanguage() + '\u0000' + response.getPrompt(), Collections.emptyList());
+            if (!AIResponseValidator.validateResponseQuality(response.getText(), keywords)) {
+                invalid.incrementAndGet();
+            }
+            if (AIResponseValidator.isResponseHallucinated(response.getText(), response.getPrompt(), scorer)) {
+                hallucinated.incrementAndGet();
+            }
+        });
+        long validated = System.nanoTime();
+
+        // Cross-language agreement: every English answer is scored against every Arabic one,
+        // and a known translation pair should both pass and be each other's best match
+        // Recorded answers, not the stand-in, are what consistency.min.similarity is calibrated on
+        List<Double> pairScores = new ArrayList<>();
+        List<Double> unrelatedScores = new ArrayList<>();
+        List<String> pairedArabic = new ArrayList<>();
+        List<RecordedResponse> english = new ArrayList<>();
+        List<String> englishTexts = new ArrayList<>();
+        List<RecordedResponse> arabic = new ArrayList<>();
+        List<String> arabicTexts = new ArrayList<>();
+        Map<String, String> arabicTextByPrompt = new HashMap<>();
+        for (RecordedResponse response : responses) {
+            if ("en".equals(response.getLanguage())) {
+                english.add(response);
+                englishTexts.add(response.getText());
+            } else if ("ar".equals(response.getLanguage())) {
+                arabic.add(response);
+                arabicTexts.add(response.getText());
+                arabicTextByPrompt.put(response.getPrompt(), response.getText());
+            }
+        }
+        CrossLingualSimilarity.Matches matches = CrossLingualSimilarity.getDefault().bestMatches(englishTexts, arabicTexts);
+        int pairs = 0;
+        int consistent = 0;
+        int matchedOwnPair = 0;
+        for (int i = 0; i < english.size(); i++) {
+            String arabicPrompt = arabicPromptByEnglish.get(english.get(i).getPrompt());
+            String arabicText = arabicPrompt == null ? null : arabicTextByPrompt.get(arabicPrompt);
+            if (arabicText == null) {
+                continue;
+            }
+            pairs++;
+            pairScores.add(AIResponseValidator.scoreMultilingualConsistency(englishTexts.get(i), arabicText));
+            if (!pairedArabic.isEmpty()) {
+                // The previous pair's Arabic answer: same domain, different question
+                unrelatedScores.add(AIResponseValidator.scoreMultilingualConsistency(englishTexts.get(i),
+                    pairedArabic.get(pairedArabic.size() - 1)));
+            }
+            pairedArabic.add(arabicText);
+            if (AIResponseValidator.validateMultilingualConsistency(englishTexts.get(i), arabicText)) {
+                consistent++;
+            }
+            int best = matches.getBestIndex(i);
+            if (best >= 0 && arabic.get(best).getPrompt().equals(arabicPrompt)) {
+                matchedOwnPair++;
+            }
+        }
+        long compared = System.nanoTime();
+
+        System.out.println(String.format("Re-validated %d responses from %s", responses.size(), directory));
+        System.out.println(String.format("  load %d ms, validate %d ms, cross-language %d ms",
+            (loaded - start) / 1_000_000, (validated - loaded) / 1_000_000, (compared - validated) / 1_000_000));
+        System.out.println(String.format("  invalid: %d, hallucinated: %d", invalid.get(), hallucinated.get()));
+        System.out.println(String.format("  cross-language: %d x %d answers compared, %d translation pairs, %d consistent, %d matched their own translation best",
+            english.size(), arabic.size(), pairs, consistent, matchedOwnPair));
+        System.out.println("  " + calibration(pairScores, unrelatedScores));
+    }
+
+    // Threshold that best separates translation pairs from answers to other questions
+    // (largest share of pairs passing minus share of unrelated answers passing)
+    static String calibration(List<Double> pairScores, List<Double> unrelatedScores) {
+        if (pairScores.size() < 2 || unrelatedScores.isEmpty()) {
+            return "consistency calibration: needs at least two recorded en/ar answer pairs";
+        }
+        double[] pairs = pairScores.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        double[] unrelated = unrelatedScores.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        double best = pairs[0];
+        double bestSeparation = -1;
+        for (double candidate : pairs) {
+            double separation = passing(pairs, candidate) - passing(unrelated, candidate);
+            if (separation > bestSeparation) {
+                bestSeparation = separation;
+                best = candidate;
+            }
+        }
+        return String.format("consistency calibration: pairs p10 %.3f / p50 %.3f / p90 %.3f, unrelated p50 %.3f / p90 %.3f; "
+                + "consistency.min.similarity=%.3f would pass %.0f%% of pairs and %.0f%% of unrelated answers (configured %.3f)",
+            percentile(pairs, 10), percentile(pairs, 50), percentile(pairs, 90), percentile(unrelated, 50),
+            percentile(unrelated, 90), best, passing(pairs, best) * 100, passing(unrelated, best) * 100,
+            CrossLingualSimilarity.getDefault().getThreshold());
+    }
+
+    // Share of the sorted scores at or above the threshold
+    private static double passing(double[] sorted, double threshold) {
+        int below = 0;
+        while (below < sorted.length && sorted[below] < threshold) {
+            below++;
+        }
+        return (sorted.length - below) / (double) sorted.length;
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile / 100 * (sorted.length - 1)))];
+    }
+}
@@ -0,0 +1,118 @@
+package base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import utils.ConfigManager;
+import utils.PhaseMetrics;
+
+import java.time.Duration;
+import java.util.List;
+
+public class ResponseWaiter {
+    // Installs a MutationObserver on the conversation container (idempotent, so it
+    // survives page reloads) and reports turn count, ms since last mutation and
+    // whether the streaming indicator is still present
+    private static final String POLL_SCRIPT =
+        "var turnSel = arguments[0], containerSel = arguments[1], loadingSel = arguments[2];" +
+        "var w = window;" +
+        "if (!w.__uaskObserver) {" +
+        "  var target = (containerSel && document.querySelector(containerSel)) || document.body;" +
+        "  w.__uaskLastMutation = Date.now();" +
+        "  w.__uaskObserver = new MutationObserver(function() { w.__uaskLastMutation = Date.now(); });" +
+        "  w.__uaskObserver.observe(target, {childList: true, subtree: true, characterData: true});" +
+        "}" +
+        "var loading = loadingSel ? document.querySelector(loadingSel) !== null : false;" +
+        "return [document.querySelectorAll(turnSel).length, Date.now() - w.__uaskLastMutation, loading];";
+
+    private final WebDriver driver;
+    private final AdaptiveWait wait;
+    private final String turnSelector = ConfigManager.getProperty("chat.response.selector");
+    private final String containerSelector = ConfigManager.getProperty("chat.container.selector", "");
+    private final String loadingSelector = ConfigManager.getProperty("chat.loading.selector", "");
+    private final int turnsPerReply = ConfigManager.getIntProperty("chat.turns.per.reply", 2);
+    private final long quietPeriodMs = ConfigManager.getIntProperty("wait.quiet.period.ms", 1500);
+    private final Duration defaultTimeout = Duration.ofSeconds(ConfigManager.getIntProperty("timeout.response", 60));
+
+    private int baselineTurns;
+
+    public ResponseWaiter(WebDriver driver, AdaptiveWait wait) {
+        this.driver = driver;
+        this.wait = wait;
+    }
+
+    // Call right before sending a prompt so the new turns can be told apart from existing ones
+    public void arm() {
+        baselineTurns = poll().turns;
+    }
+
+    public boolean awaitResponse() {
+        return awaitResponse(defaultTimeout);
+    }
+
+    // The timeout is a cap; the budget actually used is learned from past replies
+    public boolean awaitResponse(Duration timeout) {
+        long start = System.currentTimeMillis();
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.WAIT_RESPONSE)) {
+            wait.until("response complete " + turnSelector, d -> isComplete(poll()), timeout);
+            System.out.println("Response completed in " + (System.currentTimeMillis() - start) + "ms");
+            return true;
+        } catch (TimeoutException e) {
+            System.out.println("Response did not settle: " + e.getRawMessage());
+            return false;
+        }
+    }
+
+    // Single non-blocking check, for callers that poll several tabs in turn
+    public boolean isResponseComplete() {
+        return isComplete(poll());
+    }
+
+    // Turn count when arm() was last called; the reply's turns start at this index
+    public int getBaselineTurns() {
+        return baselineTurns;
+    }
+
+    // Where the bot's answer lands: the last of the turns one exchange adds (the user's own
+    // prompt comes first)
+    public int getReplyTurnIndex() {
+        return baselineTurns + turnsPerReply - 1;
+    }
+
+    public int getTurnCount() {
+        return poll().turns;
+    }
+
+    private boolean isComplete(State state) {
+        return state.turns >= baselineTurns + turnsPerReply
+            && !state.loading
+            && state.quietMs >= quietPeriodMs;
+    }
+
+    private State poll() {
+        try {
+            List<?> result = (List<?>) ((JavascriptExecutor) driver)
+                .executeScript(POLL_SCRIPT, turnSelector, containerSelector, loadingSelector);
+            return new State(
+                ((Number) result.get(0)).intValue(),
+                ((Number) result.get(1)).longValue(),
+                Boolean.TRUE.equals(result.get(2)));
+        } catch (WebDriverException e) {
+            // Page is navigating; report "not settled" and try again on the next poll
+            return new State(0, 0, true);
+        }
+    }
+
+    private static class State {
+        final int turns;
+        final long quietMs;
+        final boolean loading;
+
+        State(int turns, long quietMs, boolean loading) {
+            this.turns = turns;
+            this.quietMs = quietMs;
+            this.loading = loading;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package base;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import utils.RunHistory;
+
+public class RunHistoryListener implements ITestListener, ISuiteListener {
+    // Appends this run's verdicts, per-prompt timings and phase totals to the run history
+    // when the suite finishes. Replayed runs are left out: their timings are the recorded ones.
+
+    static final boolean ENABLED = RunHistory.isEnabled() && !ChatClient.isReplayMode();
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        if (ENABLED) {
+            RunHistory.beginTest();
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        finish(result, RunHistory.Verdict.PASSED);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        finish(result, RunHistory.Verdict.FAILED);
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        finish(result, RunHistory.Verdict.FAILED);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        finish(result, RunHistory.Verdict.SKIPPED);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (ENABLED) {
+            RunHistory.exportRun();
+        }
+    }
+
+    private static void finish(ITestResult result, RunHistory.Verdict verdict) {
+        if (ENABLED) {
+            RunHistory.finishTest(result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName(),
+                result.getTestContext().getCurrentXmlTest().getParameter("language"), verdict,
+                Math.max(0, result.getEndMillis() - result.getStartMillis()));
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package base;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import utils.BloomFilter;
+import utils.ConfigManager;
+import utils.PayloadMutator;
+import utils.TextNormalizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SecurityFuzzer {
+    // Sends generated payloads (PayloadMutator, deduplicated by a Bloom filter) through a
+    // backend in parallel and flags replies that crash, stop early or are not sanitised
+    // (AIResponseValidator.isInputSanitized). Each flagged payload is cut down by delta
+    // debugging to the smallest input that still fails and saved to the regression corpus
+    // at fuzz.corpus.path, which SecurityTests replays on every run.
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // Browsers also accept numeric references without the closing ';'
+    private static final Pattern ENTITY = Pattern.compile("&(#[xX][0-9a-fA-F]+|#[0-9]+|[a-zA-Z]+);?");
+    private static final Map<String, String> NAMED_ENTITIES = Map.of(
+        "lt", "<", "gt", ">", "amp", "&", "quot", "\"", "apos", "'",
+        "colon", ":", "sol", "/", "tab", "\t", "newline", "\n", "nbsp", "\u00a0");
+
+    private final Backend backend;
+    private final int batchSize;
+    private final int maxMinimizeChecks;
+
+    public SecurityFuzzer(Backend backend, int batchSize, int maxMinimizeChecks) {
+        this.backend = backend;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxMinimizeChecks = maxMinimizeChecks;
+    }
+
+    public static SecurityFuzzer fromConfig(Backend backend) {
+        return new SecurityFuzzer(backend, ConfigManager.getIntProperty("fuzz.batch.size", 64),
+            ConfigManager.getIntProperty("fuzz.minimize.max.checks", 200));
+    }
+
+    // Replies in prompt order; a prompt that broke the backend gets an Outcome carrying the error
+    @FunctionalInterface
+    public interface Backend {
+        List<Outcome> sendAll(List<String> prompts);
+    }
+
+    // The chat API (or the local stand-in) directly, each payload in its own conversation,
+    // at most maxInFlight at a time. sendAsync skips the shared RateLimiter, so it is taken
+    // here: a fuzz run against the live API stays under the same throttle as every other
+    // client. The stand-in has no quota to protect, and at the configured 20/min a full
+    // fuzz run would take hours, so against it only maxInFlight applies.
+    public static Backend http(String endpoint, String language, int maxInFlight) {
+        Semaphore inFlight = new Semaphore(Math.max(1, maxInFlight));
+        RateLimiter limiter = ConfigManager.getBooleanProperty("stub.enabled", false) ? null : RateLimiter.shared();
+        return prompts -> {
+            List<CompletableFuture<Outcome>> pending = new ArrayList<>(prompts.size());
+            for (String prompt : prompts) {
+                if (limiter != null) {
+                    limiter.acquire();
+                }
+                inFlight.acquireUninterruptibly();
+                pending.add(new HttpChatClient(endpoint, language).sendAsync(prompt)
+                    .handle((response, error) -> error == null ? Outcome.of(response) : Outcome.failed(rootMessage(error)))
+                    .whenComplete((outcome, error) -> inFlight.release()));
+            }
+            List<Outcome> outcomes = new ArrayList<>(prompts.size());
+            pending.forEach(future -> outcomes.add(future.join()));
+            return outcomes;
+        };
+    }
+
+    // Any chat client, e.g. the browser session (side by side in tabs with fanout.tabs > 1).
+    // A batch that throws is retried one prompt at a time to find the one that broke it.
+    public static Backend client(ChatClient client) {
+        return prompts -> {
+            try {
+                List<Outcome> outcomes = new ArrayList<>(prompts.size());
+                client.sendAll(prompts, i -> chunk -> true).forEach(response -> outcomes.add(Outcome.of(response)));
+                return outcomes;
+            } catch (RuntimeException batchError) {
+                List<Outcome> outcomes = new ArrayList<>(prompts.size());
+                for (String prompt : prompts) {
+                    try {
+                        client.newConversation();
+                        outcomes.add(Outcome.of(client.send(prompt)));
+                    } catch (RuntimeException e) {
+                        outcomes.add(Outcome.failed(rootMessage(e)));
+                    }
+                }
+                return outcomes;
+            }
+        };
+    }
+
+    public Report run(PayloadMutator mutator, int count) {
+        long start = System.nanoTime();
+        BloomFilter seen = new BloomFilter(count, 0.001);
+        List<PayloadMutator.Payload> payloads = mutator.generate(count, seen, count * 20);
+        long generated = System.nanoTime();
+
+        List<Finding> findings = new ArrayList<>();
+        for (int from = 0; from < payloads.size(); from += batchSize) {
+            List<PayloadMutator.Payload> batch = payloads.subList(from, Math.min(payloads.size(), from + batchSize));
+            List<String> texts = new ArrayList<>(batch.size());
+            batch.forEach(payload -> texts.add(payload.getText()));
+            List<Outcome> outcomes = backend.sendAll(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                Problem problem = classify(texts.get(i), outcomes.get(i));
+                if (problem != null) {
+                    PayloadMutator.Payload payload = batch.get(i);
+                    String description = describe(problem, outcomes.get(i));
+                    System.out.println("Fuzz finding (" + payload.getCategory() + "): " + description);
+                    findings.add(new Finding(minimize(payload.getText(), problem), payload.getText(),
+                        payload.getCategory().name(), payload.getLanguage(), description));
+                }
+            }
+        }
+        return new Report(payloads.size(), findings, (generated - start) / 1_000_000, (System.nanoTime() - generated) / 1_000_000);
+    }
+
+    // Replays saved findings; returns the ones that still fail
+    public List<Finding> replay(List<Finding> corpus) {
+        List<String> texts = new ArrayList<>(corpus.size());
+        corpus.forEach(finding -> texts.add(finding.getPayload()));
+        List<Finding> stillFailing = new ArrayList<>();
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            List<String> batch = texts.subList(from, Math.min(texts.size(), from + batchSize));
+            List<Outcome> outcomes = backend.sendAll(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                String problem = problemWith(batch.get(i), outcomes.get(i));
+                if (problem != null) {
+                    Finding finding = corpus.get(from + i);
+                    stillFailing.add(new Finding(finding.getPayload(), finding.getOriginal(), finding.getCategory(),
+                        finding.getLanguage(), problem));
+                }
+            }
+        }
+        return stillFailing;
+    }
+
+    // How a reply can fail; minimisation only keeps candidates that fail the same way
+    enum Problem {
+        CRASHED, INCOMPLETE, UNSANITISED
+    }
+
+    // Null when the reply is acceptable
+    static Problem classify(String payload, Outcome outcome) {
+        if (outcome.getError() != null) {
+            return Problem.CRASHED;
+        }
+        ChatResponse response = outcome.getResponse();
+        if (!response.isComplete()) {
+            return Problem.INCOMPLETE;
+        }
+        if (!AIResponseValidator.isInputSanitized(payloadForm(payload), replyForm(response.getText()))) {
+            return Problem.UNSANITISED;
+        }
+        return null;
+    }
+
+    // Null when the reply is acceptable
+    public static String problemWith(String payload, Outcome outcome) {
+        Problem problem = classify(payload, outcome);
+        return problem == null ? null : describe(problem, outcome);
+    }
+
+    private static String describe(Problem problem, Outcome outcome) {
+        switch (problem) {
+            case CRASHED:
+                return "crashed: " + outcome.getError();
+            case INCOMPLETE:
+                return "reply stopped after " + outcome.getResponse().getChunkCount() + " chunks";
+            default:
+                return "reply not sanitised";
+        }
+    }
+
+    // The payload as the page would interpret it: entities decoded, then folded by
+    // TextNormalizer, so "&lt;script&gt;" and "java&#115;cript:" are the markup they spell
+    static String payloadForm(String text) {
+        return TextNormalizer.normalizeToString(decodeEntities(text));
+    }
+
+    // The reply folded for case and width ("<SCRIPT>", "＜script＞") but not decoded: escaped
+    // markup such as "&lt;script&gt;" is what a correctly sanitised reply looks like
+    static String replyForm(String text) {
+        return TextNormalizer.normalizeToString(text);
+    }
+
+    // One pass, as a browser decodes: numeric references and the named ones that spell markup
+    static String decodeEntities(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        Matcher matcher = ENTITY.matcher(text);
+        StringBuilder decoded = new StringBuilder(text.length());
+        int last = 0;
+        while (matcher.find()) {
+            String replacement = decodeEntity(matcher.group(1));
+            if (replacement != null) {
+                decoded.append(text, last, matcher.start()).append(replacement);
+                last = matcher.end();
+            }
+        }
+        return last == 0 ? text : decoded.append(text, last, text.length()).toString();
+    }
+
+    private static String decodeEntity(String name) {
+        if (name.charAt(0) != '#') {
+            return NAMED_ENTITIES.get(name.toLowerCase());
+        }
+        boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+        String digits = name.substring(hex ? 2 : 1);
+        // Longer runs of digits are out of range anyway
+        if (digits.isEmpty() || digits.length() > 7) {
+            return null;
+        }
+        int codePoint = Integer.parseInt(digits, hex ? 16 : 10);
+        return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+    }
+
+    // Delta debugging (ddmin) over code points: keep dropping chunks while the payload still
+    // fails with the same problem. A candidate that fails some other way (say a crash while
+    // cutting down an unsanitised reply) is a different bug and is not followed. Every
+    // candidate of a round goes to the backend as one parallel batch.
+    String minimize(String payload, Problem problem) {
+        Function<List<String>, boolean[]> fails = candidates -> {
+            List<Outcome> outcomes = backend.sendAll(candidates);
+            boolean[] failed = new boolean[candidates.size()];
+            for (int i = 0; i < failed.length; i++) {
+                failed[i] = classify(candidates.get(i), outcomes.get(i)) == problem;
+            }
+            return failed;
+        };
+        // A failure that does not come back is flaky; keep the payload as found
+        if (!fails.apply(Collections.singletonList(payload))[0]) {
+            System.out.println("  not reproducible, kept unminimised");
+            return payload;
+        }
+        String minimized = minimize(payload, fails, maxMinimizeChecks);
+        System.out.println("  minimised " + payload.length() + " -> " + minimized.length() + " chars");
+        return minimized;
+    }
+
+    static String minimize(String input, Function<List<String>, boolean[]> fails, int maxChecks) {
+        List<String> units = new ArrayList<>();
+        for (int codePoint : input.codePoints().toArray()) {
+            units.add(new String(Character.toChars(codePoint)));
+        }
+        int granularity = 2;
+        int checks = 0;
+        while (units.size() >= 2 && checks < maxChecks) {
+            List<List<String>> chunks = split(units, granularity);
+            List<String> candidates = new ArrayList<>();
+            chunks.forEach(chunk -> candidates.add(String.join("", chunk)));
+            // With two chunks each complement is the other chunk
+            if (chunks.size() > 2) {
+                for (int i = 0; i < chunks.size(); i++) {
+                    candidates.add(String.join("", complement(chunks, i)));
+                }
+            }
+            boolean[] failed = fails.apply(candidates);
+            checks += candidates.size();
+            int hit = -1;
+            for (int i = 0; i < failed.length && hit < 0; i++) {
+                hit = failed[i] ? i : -1;
+            }
+            if (hit >= 0 && hit < chunks.size()) {
+                units = new ArrayList<>(chunks.get(hit));
+                granularity = 2;
+            } else if (hit >= chunks.size()) {
+                units = complement(chunks, hit - chunks.size());
+                granularity = Math.max(granularity - 1, 2);
+            } else if (granularity >= units.size()) {
+                break;
+            } else {
+                granularity = Math.min(units.size(), granularity * 2);
+            }
+        }
+        return String.join("", units);
+    }
+
+    private static List<List<String>> split(List<String> units, int parts) {
+        List<List<String>> chunks = new ArrayList<>(parts);
+        int size = units.size();
+        for (int i = 0; i < parts; i++) {
+            int from = i * size / parts;
+            int to = (i + 1) * size / parts;
+            if (to > from) {
+                chunks.add(units.subList(from, to));
+            }
+        }
+        return chunks;
+    }
+
+    private static List<String> complement(List<List<String>> chunks, int skip) {
+        List<String> rest = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i != skip) {
+                rest.addAll(chunks.get(i));
+            }
+        }
+        return rest;
+    }
+
+    public static Path getCorpusPath() {
+        return Paths.get(ConfigManager.getProperty("fuzz.corpus.path", "test-reports/fuzz/corpus.json"));
+    }
+
+    public static List<Finding> loadCorpus(Path file) {
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try {
+            return mapper.readValue(file.toFile(), new TypeReference<List<Finding>>() { });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read fuzz corpus " + file, e);
+        }
+    }
+
+    // Adds findings whose minimised payload is not in the corpus yet
+    public static synchronized void saveToCorpus(Path file, List<Finding> findings) {
+        Map<String, Finding> corpus = new LinkedHashMap<>();
+        loadCorpus(file).forEach(finding -> corpus.put(finding.getLanguage() + '\u0000' + finding.getPayload(), finding));
+        findings.forEach(finding -> corpus.putIfAbsent(finding.getLanguage() + '\u0000' + finding.getPayload(), finding));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), new ArrayList<>(corpus.values()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write fuzz corpus " + file, e);
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+    }
+
+    public static final class Outcome {
+        private final ChatResponse response;
+        private final String error;
+
+        private Outcome(ChatResponse response, String error) {
+            this.response = response;
+            this.error = error;
+        }
+
+        public static Outcome of(ChatResponse response) {
+            return new Outcome(response, null);
+        }
+
+        public static Outcome failed(String error) {
+            return new Outcome(null, error);
+        }
+
+        public ChatResponse getResponse() {
+            return response;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    public static final class Finding {
+        private final String payload;
+        private final String original;
+        private final String category;
+        private final String language;
+        private final String problem;
+
+        @JsonCreator
+        public Finding(@JsonProperty("payload") String payload,
+                       @JsonProperty("original") String original,
+                       @JsonProperty("category") String category,
+                       @JsonProperty("language") String language,
+                       @JsonProperty("problem") String problem) {
+            this.payload = payload;
+            this.original = original;
+            this.category = category;
+            this.language = language;
+            this.problem = problem;
+        }
+
+        // Minimised payload
+        public String getPayload() {
+            return payload;
+        }
+
+        public String getOriginal() {
+            return original;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public String getProblem() {
+            return problem;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + language + "/" + category + "] " + problem + ": " + payload;
+        }
+    }
+
+    public static final class Report {
+        private final int payloadCount;
+        private final List<Finding> findings;
+        private final long generationMillis;
+        private final long executionMillis;
+
+        Report(int payloadCount, List<Finding> findings, long generationMillis, long executionMillis) {
+            this.payloadCount = payloadCount;
+            this.findings = findings;
+            this.generationMillis = generationMillis;
+            this.executionMillis = executionMillis;
+        }
+
+        public int getPayloadCount() {
+            return payloadCount;
+        }
+
+        public List<Finding> getFindings() {
+            return findings;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d unique payloads generated in %d ms, sent in %d ms (%.1f/s), %d finding(s)",
+                payloadCount, generationMillis, executionMillis,
+                executionMillis == 0 ? 0 : payloadCount * 1000.0 / executionMillis, findings.size());
+        }
+    }
+}
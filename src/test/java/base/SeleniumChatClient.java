@@ -0,0 +1,124 @@
+package base;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import utils.ConfigManager;
+import utils.PhaseMetrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+public class SeleniumChatClient implements ChatClient {
+    public static final By CHAT_INPUT = By.cssSelector(ConfigManager.getProperty("chat.input.selector"));
+    public static final By SEND_BUTTON = By.cssSelector(ConfigManager.getProperty("chat.send.selector"));
+    public static final By AI_RESPONSE = By.cssSelector(ConfigManager.getProperty("chat.response.selector"));
+    public static final By LOADING_INDICATOR = By.cssSelector(ConfigManager.getProperty("chat.loading.selector"));
+
+    private final WebDriver driver;
+    private final AdaptiveWait wait;
+    private final ResponseWaiter responseWaiter;
+    private final StreamTimingRecorder timingRecorder;
+    private final TurnExtractor turnExtractor;
+    private final String language;
+
+    public SeleniumChatClient(WebDriver driver, AdaptiveWait wait, ResponseWaiter responseWaiter) {
+        this(driver, wait, responseWaiter, null);
+    }
+
+    public SeleniumChatClient(WebDriver driver, AdaptiveWait wait, ResponseWaiter responseWaiter,
+                              StreamTimingRecorder timingRecorder) {
+        this(driver, wait, responseWaiter, timingRecorder, wait.getLanguage());
+    }
+
+    // language is the one this client tests, which may differ from the session's test
+    public SeleniumChatClient(WebDriver driver, AdaptiveWait wait, ResponseWaiter responseWaiter,
+                              StreamTimingRecorder timingRecorder, String language) {
+        this.driver = driver;
+        this.wait = wait;
+        this.responseWaiter = responseWaiter;
+        this.timingRecorder = timingRecorder;
+        this.turnExtractor = new TurnExtractor(driver);
+        this.language = language;
+    }
+
+    @Override
+    public ChatResponse send(String prompt) {
+        // Timed from the click, like HttpChatClient after its throttle, so rate limiting and
+        // input waits are not counted as the chatbot's reply time
+        long sentAt = submit(prompt);
+        boolean complete = responseWaiter.awaitResponse();
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt);
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.EXTRACTION)) {
+            // The DOM has settled, so the stream's end event is at most a CDP round trip behind
+            StreamTiming timing = timingRecorder == null ? null : timingRecorder.collect(Duration.ofSeconds(2));
+            long ttft = timing == null ? -1 : timing.getTimeToFirstTokenMillis();
+            int chunks = timing == null ? 0 : timing.getChunkCount();
+            return new ChatResponse(prompt, getReplyText(), ttft, totalMillis, chunks, complete, timing);
+        }
+    }
+
+    // Types the prompt and clicks send without waiting for the reply; returns the
+    // System.nanoTime() taken just before the click, after every wait and the throttle
+    public long submit(String prompt) {
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.INPUT)) {
+            WebElement chatInput = wait.clickable(CHAT_INPUT);
+            // Declares the prompt's language on the input (the HTML lang attribute), which the
+            // stub page posts with the prompt. Set on every send: clients of several languages
+            // can share one session and its input.
+            ((JavascriptExecutor) driver).executeScript("arguments[0].lang = arguments[1];", chatInput, language);
+            chatInput.sendKeys(prompt);
+        }
+
+        WebElement sendButton = wait.clickable(SEND_BUTTON);
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.THROTTLE)) {
+            RateLimiter.shared().acquire();
+        }
+        try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.SEND)) {
+            responseWaiter.arm();
+            if (timingRecorder != null) {
+                timingRecorder.arm();
+            }
+            long sentAt = System.nanoTime();
+            sendButton.click();
+            return sentAt;
+        }
+    }
+
+    // The bot's turn for the prompt last submitted, read by index so a reply that never
+    // arrived is empty rather than the user's own prompt or the previous answer
+    public String getReplyText() {
+        TurnExtractor.Turn reply = turnExtractor.at(responseWaiter.getReplyTurnIndex());
+        return reply == null ? "" : reply.getText();
+    }
+
+    // With fanout.tabs > 1 the prompts run side by side in tabs of this session
+    @Override
+    public List<ChatResponse> sendAll(List<String> prompts, IntFunction<Predicate<CharSequence>> onChunk) {
+        int tabs = ConfigManager.getIntProperty("fanout.tabs", 1);
+        if (tabs <= 1 || prompts.size() <= 1) {
+            return ChatClient.super.sendAll(prompts, onChunk);
+        }
+        List<ChatResponse> responses = new TabPromptScheduler(driver, wait, tabs).run(prompts);
+        for (int i = 0; i < responses.size(); i++) {
+            // Replies are read once finished, so listeners see each as a single chunk
+            onChunk.apply(i).test(responses.get(i).getText());
+        }
+        return responses;
+    }
+
+    @Override
+    public void newConversation() {
+        driver.get(ConfigManager.getAppUrl());
+        turnExtractor.reset();
+    }
+
+    @Override
+    public void close() {
+        // The browser session belongs to DriverPool
+    }
+}
@@ -0,0 +1,80 @@
+package base;
+
+import utils.ConfigManager;
+import utils.RunHistory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ShardLauncher {
+    // Runs a suite as shard.count forked JVMs on this machine, then merges their reports:
+    //   java -cp <test classpath> -Dshard.count=4 [-Dkey=value ...] base.ShardLauncher [suite.xml] [output dir]
+    // or mvn -Pshards test -Dshard.count=4 -Dshard.jvm.args="-Dkey=value ...".
+    // Every -D override of a config.properties key is passed on to the shards. Each shard
+    // writes to <output>/shards/shard-N (TestNG output, metrics, console log and, in record
+    // mode, its own response store) and the merge lands in <output> itself.
+    //
+    // To spread shards over machines instead, run the normal suite on each machine with
+    // -Dshard.index=N -Dshard.count=K, collect their test-reports directories and run
+    // base.ShardReportMerger over them.
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = ConfigManager.getIntProperty("shard.count", 1);
+        if (count < 2) {
+            System.out.println("Set -Dshard.count to the number of JVMs to fork (2 or more)");
+            System.exit(2);
+        }
+        String suite = args.length > 0 ? args[0] : "testng.xml";
+        Path output = Paths.get(args.length > 1 ? args[1] : "test-reports");
+
+        Map<String, String> overrides = ConfigManager.getOverrides();
+        // Without an explicit thread count every shard would size itself for the whole machine
+        if (!overrides.containsKey("suite.thread.count")) {
+            overrides.put("suite.thread.count", String.valueOf(Math.max(1, ConfigManager.getSuiteThreadCount() / count)));
+        }
+        // Shards append to the run history as parts of one run
+        overrides.putIfAbsent("history.run.id", RunHistory.getCurrentRunId());
+        boolean recording = "record".equals(ChatClient.getMode());
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Path> shardDirectories = new ArrayList<>();
+        List<Process> processes = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int index = 0; index < count; index++) {
+            Path directory = output.resolve("shards").resolve("shard-" + index);
+            Files.createDirectories(directory);
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+            overrides.forEach((key, value) -> command.add("-D" + key + "=" + value));
+            command.add("-Dshard.index=" + index);
+            command.add("-Dshard.count=" + count);
+            command.add("-Dmetrics.dir=" + directory.resolve("metrics"));
+            if (recording) {
+                // Concurrent appenders would corrupt a shared store; the merge combines them
+                command.add("-Dstore.path=" + directory.resolve("response-store"));
+            }
+            command.addAll(List.of("org.testng.TestNG", "-d", directory.toString(), suite));
+
+            processes.add(new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("output.log").toFile())
+                .start());
+            shardDirectories.add(directory);
+            System.out.println("Started shard " + index + " of " + count + ", log in " + directory.resolve("output.log"));
+        }
+
+        for (int index = 0; index < count; index++) {
+            int exitCode = processes.get(index).waitFor();
+            System.out.println("Shard " + index + " finished with exit code " + exitCode);
+        }
+        System.out.println("All shards finished in " + (System.currentTimeMillis() - start) + "ms");
+
+        ShardReportMerger.Summary summary = ShardReportMerger.merge(output, shardDirectories);
+        System.out.println(summary);
+        System.exit(summary.isSuccessful() ? 0 : 1);
+    }
+}
@@ -0,0 +1,38 @@
+package base;
+
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import utils.Shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ShardMethodInterceptor implements IMethodInterceptor {
+    // With shard.count > 1, keeps only the test methods this shard owns, keyed by <test>
+    // name plus method so the en and ar runs of one method can land on different shards.
+    // Methods in the "corpus" group run on every shard: they iterate the prompt corpus,
+    // which TestDataLoader has already cut down to this shard's slice.
+
+    public static final String CORPUS_GROUP = "corpus";
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        Shard shard = Shard.current();
+        if (!shard.isSharded()) {
+            return methods;
+        }
+        List<IMethodInstance> owned = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            String key = context.getName() + "/" + method.getRealClass().getName() + "." + method.getMethodName();
+            if (Arrays.asList(method.getGroups()).contains(CORPUS_GROUP) || shard.owns(key)) {
+                owned.add(instance);
+            }
+        }
+        System.out.println(String.format("%s runs %d of %d methods in '%s'", shard, owned.size(), methods.size(), context.getName()));
+        return owned;
+    }
+}
@@ -0,0 +1,307 @@
+package base;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import utils.ResponseStore;
+import utils.RunHistory;
+import utils.WaitHistory;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+public class ShardReportMerger {
+    // Combines per-shard output into one test-reports view:
+    //   java -cp <test classpath> base.ShardReportMerger <output dir> <shard dir>...
+    // A shard dir is a TestNG output directory (ShardLauncher's shards/shard-N, or the
+    // test-reports of a surefire run on another machine) with metrics/ and, in record
+    // mode, response-store/ inside it.
+    //
+    //   testng-results.xml   counters summed; suites, tests and classes merged by name
+    //   junitreports/        copied with a -shardN suffix
+    //   metrics/             JSONL concatenated, Prometheus samples summed
+    //   wait observations    folded into wait.history.path
+    //   response stores      copied into store.path
+    //   run-history/         records not yet in history.path appended (shards on this
+    //                        machine already append to history.path directly)
+
+    public static final String RESULTS_FILE = "testng-results.xml";
+
+    private static final String[] COUNTERS = {"total", "passed", "failed", "skipped", "ignored"};
+    // Merged by name attribute; everything else (test-method, exceptions) is appended
+    private static final Set<String> CONTAINERS = Set.of("suite", "test", "class", "groups", "group", "reporter-output");
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: base.ShardReportMerger <output dir> <shard dir>...");
+            System.exit(2);
+        }
+        List<Path> shards = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            shards.add(Paths.get(args[i]));
+        }
+        Summary summary = merge(Paths.get(args[0]), shards);
+        System.out.println(summary);
+        System.exit(summary.isSuccessful() ? 0 : 1);
+    }
+
+    public static Summary merge(Path output, List<Path> shards) {
+        try {
+            Files.createDirectories(output);
+            Summary summary = mergeResults(output, shards);
+            for (int i = 0; i < shards.size(); i++) {
+                copyJUnitReports(shards.get(i), output, i);
+            }
+            mergeMetrics(output, shards);
+            mergeStores(shards);
+            mergeHistories(shards);
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to merge shard reports into " + output, e);
+        }
+    }
+
+    private static Summary mergeResults(Path output, List<Path> shards) throws IOException {
+        Document merged = null;
+        List<Path> missing = new ArrayList<>();
+        for (Path shard : shards) {
+            Path results = shard.resolve(RESULTS_FILE);
+            if (!Files.exists(results)) {
+                missing.add(shard);
+                continue;
+            }
+            Document document = parse(results);
+            if (merged == null) {
+                merged = document;
+                continue;
+            }
+            Element target = merged.getDocumentElement();
+            Element source = document.getDocumentElement();
+            for (String counter : COUNTERS) {
+                target.setAttribute(counter, String.valueOf(intAttribute(target, counter) + intAttribute(source, counter)));
+            }
+            mergeChildren(merged, target, source);
+        }
+        if (merged == null) {
+            return new Summary(0, 0, 0, 0, missing);
+        }
+        write(merged, output.resolve(RESULTS_FILE));
+        Element root = merged.getDocumentElement();
+        return new Summary(intAttribute(root, "total"), intAttribute(root, "passed"),
+            intAttribute(root, "failed"), intAttribute(root, "skipped"), missing);
+    }
+
+    private static void mergeChildren(Document merged, Element target, Element source) {
+        NodeList children = source.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!(children.item(i) instanceof Element)) {
+                continue;
+            }
+            Element child = (Element) children.item(i);
+            Element match = CONTAINERS.contains(child.getTagName()) ? findChild(target, child) : null;
+            if (match == null) {
+                target.appendChild(merged.importNode(child, true));
+            } else {
+                mergeTimes(match, child);
+                mergeChildren(merged, match, child);
+            }
+        }
+    }
+
+    private static Element findChild(Element parent, Element like) {
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node node = children.item(i);
+            if (node instanceof Element && ((Element) node).getTagName().equals(like.getTagName())
+                    && ((Element) node).getAttribute("name").equals(like.getAttribute("name"))) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    // Shards run side by side, so a merged suite lasts as long as its slowest shard
+    private static void mergeTimes(Element target, Element source) {
+        if (source.hasAttribute("duration-ms")) {
+            target.setAttribute("duration-ms", String.valueOf(Math.max(
+                longAttribute(target, "duration-ms"), longAttribute(source, "duration-ms"))));
+        }
+        String started = source.getAttribute("started-at");
+        if (!started.isEmpty() && (target.getAttribute("started-at").isEmpty() || started.compareTo(target.getAttribute("started-at")) < 0)) {
+            target.setAttribute("started-at", started);
+        }
+        String finished = source.getAttribute("finished-at");
+        if (finished.compareTo(target.getAttribute("finished-at")) > 0) {
+            target.setAttribute("finished-at", finished);
+        }
+    }
+
+    private static void copyJUnitReports(Path shard, Path output, int index) throws IOException {
+        Path reports = shard.resolve("junitreports");
+        if (!Files.isDirectory(reports)) {
+            return;
+        }
+        Path target = output.resolve("junitreports");
+        Files.createDirectories(target);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(reports, "*.xml")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String renamed = name.substring(0, name.length() - 4) + "-shard" + index + ".xml";
+                Files.copy(file, target.resolve(renamed), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void mergeMetrics(Path output, List<Path> shards) throws IOException {
+        Path metrics = output.resolve("metrics");
+        Files.createDirectories(metrics);
+        Map<String, Double> samples = new LinkedHashMap<>();
+        List<String> headers = new ArrayList<>();
+        WaitHistory waitHistory = null;
+        for (Path shard : shards) {
+            Path shardMetrics = shard.resolve("metrics");
+            Path jsonl = shardMetrics.resolve("phase-timings.jsonl");
+            if (Files.exists(jsonl)) {
+                Files.write(metrics.resolve("phase-timings.jsonl"), Files.readAllBytes(jsonl),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            Path prometheus = shardMetrics.resolve("phase-timings.prom");
+            if (Files.exists(prometheus)) {
+                for (String line : Files.readAllLines(prometheus, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("#")) {
+                        if (!headers.contains(line)) {
+                            headers.add(line);
+                        }
+                    } else if (!line.isEmpty()) {
+                        int split = line.lastIndexOf(' ');
+                        samples.merge(line.substring(0, split), Double.parseDouble(line.substring(split + 1)), Double::sum);
+                    }
+                }
+            }
+            Path observations = shardMetrics.resolve(WaitHistory.OBSERVATIONS_FILE);
+            if (Files.exists(observations)) {
+                waitHistory = waitHistory == null ? WaitHistory.shared() : waitHistory;
+                waitHistory.recordAll(observations);
+            }
+        }
+        if (!samples.isEmpty()) {
+            StringBuilder out = new StringBuilder();
+            headers.forEach(header -> out.append(header).append('\n'));
+            samples.forEach((series, value) -> out.append(series).append(' ').append(value == Math.rint(value)
+                ? String.valueOf(value.longValue()) : String.format(Locale.ROOT, "%.6f", value)).append('\n'));
+            Files.writeString(metrics.resolve("phase-timings.prom"), out, StandardCharsets.UTF_8);
+        }
+        if (waitHistory != null) {
+            waitHistory.save();
+        }
+    }
+
+    private static void mergeStores(List<Path> shards) {
+        for (Path shard : shards) {
+            Path store = shard.resolve("response-store");
+            if (Files.exists(store.resolve(ResponseStore.FILE_NAME))) {
+                try (ResponseStore shardStore = ResponseStore.open(store)) {
+                    shardStore.forEach(ResponseStore.shared()::put);
+                }
+            }
+        }
+        ResponseStore.closeShared();
+    }
+
+    private static void mergeHistories(List<Path> shards) throws IOException {
+        Path target = RunHistory.getDefaultPath();
+        for (Path shard : shards) {
+            Path history = shard.resolve("run-history").resolve(RunHistory.FILE_NAME);
+            if (Files.exists(history) && !(Files.exists(target) && Files.isSameFile(history, target))) {
+                try (RunHistory merged = RunHistory.open(target); RunHistory shardHistory = RunHistory.open(history)) {
+                    merged.importFrom(shardHistory);
+                }
+            }
+        }
+    }
+
+    private static Document parse(Path file) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(file.toFile());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read " + file, e);
+        }
+    }
+
+    private static void write(Document document, Path file) {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            transformer.transform(new DOMSource(document), new StreamResult(file.toFile()));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to write " + file, e);
+        }
+    }
+
+    private static int intAttribute(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private static long longAttribute(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value.isEmpty() ? 0 : Long.parseLong(value);
+    }
+
+    public static final class Summary {
+        private final int total;
+        private final int passed;
+        private final int failed;
+        private final int skipped;
+        private final List<Path> missingShards;
+
+        Summary(int total, int passed, int failed, int skipped, List<Path> missingShards) {
+            this.total = total;
+            this.passed = passed;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.missingShards = missingShards;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public List<Path> getMissingShards() {
+            return missingShards;
+        }
+
+        // A shard without results lost its tests, which must not read as a pass
+        public boolean isSuccessful() {
+            return failed == 0 && missingShards.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Merged results: %d tests, %d passed, %d failed, %d skipped%s", total, passed, failed, skipped,
+                missingShards.isEmpty() ? "" : ", no results from " + missingShards);
+        }
+    }
+}
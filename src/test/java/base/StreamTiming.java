@@ -0,0 +1,71 @@
+package base;
+
+import java.util.Locale;
+
+public final class StreamTiming {
+    // Arrival times of a streamed reply, as microsecond offsets from the moment the
+    // prompt request left the client. A chunk is one network read (CDP) or one SSE
+    // event (HTTP); several tokens can share a chunk, so rates use the token count.
+
+    private final long[] chunkOffsetsMicros;
+    private final int tokenCount;
+    private final long endOffsetMicros;
+
+    public StreamTiming(long[] chunkOffsetsMicros, int tokenCount, long endOffsetMicros) {
+        this.chunkOffsetsMicros = chunkOffsetsMicros.clone();
+        this.tokenCount = Math.max(tokenCount, chunkOffsetsMicros.length == 0 ? 0 : 1);
+        this.endOffsetMicros = endOffsetMicros;
+    }
+
+    public int getChunkCount() {
+        return chunkOffsetsMicros.length;
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public long getTimeToFirstTokenMillis() {
+        return chunkOffsetsMicros.length == 0 ? -1 : chunkOffsetsMicros[0] / 1000;
+    }
+
+    // -1 when the end of the stream was not observed
+    public long getTotalMillis() {
+        return endOffsetMicros < 0 ? -1 : endOffsetMicros / 1000;
+    }
+
+    // Average gap between tokens once streaming has started
+    public double getMeanInterTokenMillis() {
+        if (tokenCount < 2) {
+            return 0;
+        }
+        return getStreamingMicros() / 1000.0 / (tokenCount - 1);
+    }
+
+    // Longest pause between two chunks; a stall shows up here even when the mean looks fine
+    public double getMaxInterChunkMillis() {
+        long max = 0;
+        for (int i = 1; i < chunkOffsetsMicros.length; i++) {
+            max = Math.max(max, chunkOffsetsMicros[i] - chunkOffsetsMicros[i - 1]);
+        }
+        return max / 1000.0;
+    }
+
+    // Decode rate after the first token, the figure streaming UIs are judged on
+    public double getTokensPerSecond() {
+        long streaming = getStreamingMicros();
+        return tokenCount < 2 || streaming == 0 ? 0 : (tokenCount - 1) * 1_000_000.0 / streaming;
+    }
+
+    private long getStreamingMicros() {
+        int n = chunkOffsetsMicros.length;
+        return n < 2 ? 0 : chunkOffsetsMicros[n - 1] - chunkOffsetsMicros[0];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "ttft=%dms itl=%.1fms maxGap=%.1fms rate=%.1f tok/s tokens=%d chunks=%d total=%dms",
+            getTimeToFirstTokenMillis(), getMeanInterTokenMillis(), getMaxInterChunkMillis(),
+            getTokensPerSecond(), tokenCount, getChunkCount(), getTotalMillis());
+    }
+}
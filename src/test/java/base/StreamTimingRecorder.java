@@ -0,0 +1,188 @@
+package base;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+import utils.ConfigManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+public class StreamTimingRecorder {
+    // Watches the browser's network layer over CDP and timestamps the chat request, each
+    // chunk of its streamed body and the end of the stream. Raw Network.* commands and
+    // events are used instead of a versioned devtools package, so a Chrome upgrade does
+    // not need a matching selenium-devtools-vNNN. Timestamps are Chrome's own monotonic
+    // clock, so WebSocket delivery delay between Chrome and the test does not skew them.
+
+    private static final Set<String> STREAM_RESOURCE_TYPES = Set.of("Fetch", "XHR", "EventSource");
+    private static final Function<JsonInput, Map<String, Object>> PARAMS = input -> input.read(Json.MAP_TYPE);
+
+    private final DevTools devTools;
+    private final Pattern urlPattern;
+
+    // Guarded by this; written from the CDP listener thread
+    private boolean armed;
+    private String requestId;
+    private double requestTimestamp;
+    private final List<Double> chunkTimestamps = new ArrayList<>();
+    private double endTimestamp = -1;
+    private boolean finished;
+
+    private StreamTimingRecorder(DevTools devTools, Pattern urlPattern) {
+        this.devTools = devTools;
+        this.urlPattern = urlPattern;
+    }
+
+    // Null when the driver has no CDP endpoint (Firefox, plain remote sessions) or timing is disabled
+    public static StreamTimingRecorder attach(WebDriver driver) {
+        if (!(driver instanceof HasDevTools) || !ConfigManager.getBooleanProperty("cdp.timing.enabled", true)) {
+            return null;
+        }
+        String pattern = ConfigManager.getProperty("chat.stream.url.pattern", "");
+        try {
+            DevTools devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSessionIfThereIsNotOne();
+            // Pooled sessions keep listeners from the previous test
+            devTools.clearListeners();
+            StreamTimingRecorder recorder = new StreamTimingRecorder(devTools,
+                pattern.isEmpty() ? null : Pattern.compile(pattern));
+            devTools.addListener(new Event<>("Network.requestWillBeSent", PARAMS), recorder::onRequestWillBeSent);
+            devTools.addListener(new Event<>("Network.dataReceived", PARAMS), recorder::onDataReceived);
+            devTools.addListener(new Event<>("Network.loadingFinished", PARAMS), recorder::onLoadingFinished);
+            devTools.addListener(new Event<>("Network.loadingFailed", PARAMS), recorder::onLoadingFinished);
+            devTools.send(new Command<Void>("Network.enable", Map.of()));
+            return recorder;
+        } catch (RuntimeException e) {
+            System.out.println("CDP stream timing unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Call just before the prompt is sent; the next matching request is the one timed
+    public synchronized void arm() {
+        armed = true;
+        requestId = null;
+        requestTimestamp = 0;
+        chunkTimestamps.clear();
+        endTimestamp = -1;
+        finished = false;
+    }
+
+    // Null if no matching request was seen. Normally called once the DOM says the reply
+    // is complete, so the end-of-stream event is at most a WebSocket hop behind.
+    public StreamTiming collect(Duration timeout) {
+        String id;
+        long[] offsets;
+        long end;
+        synchronized (this) {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (!finished && requestId != null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (requestId == null) {
+                return null;
+            }
+            id = requestId;
+            offsets = new long[chunkTimestamps.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = toMicros(chunkTimestamps.get(i) - requestTimestamp);
+            }
+            end = endTimestamp < 0 ? -1 : toMicros(endTimestamp - requestTimestamp);
+            armed = false;
+        }
+        return new StreamTiming(offsets, countTokens(id, offsets.length), end);
+    }
+
+    private synchronized void onRequestWillBeSent(Map<String, Object> params) {
+        if (!armed || requestId != null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> request = (Map<String, Object>) params.get("request");
+        String url = String.valueOf(request.get("url"));
+        boolean candidate = urlPattern != null
+            ? urlPattern.matcher(url).find()
+            : "POST".equals(request.get("method")) && STREAM_RESOURCE_TYPES.contains(String.valueOf(params.get("type")));
+        if (candidate) {
+            requestId = (String) params.get("requestId");
+            requestTimestamp = ((Number) params.get("timestamp")).doubleValue();
+        }
+    }
+
+    private synchronized void onDataReceived(Map<String, Object> params) {
+        if (requestId != null && !finished && requestId.equals(params.get("requestId"))
+                && ((Number) params.get("dataLength")).longValue() > 0) {
+            chunkTimestamps.add(((Number) params.get("timestamp")).doubleValue());
+        }
+    }
+
+    private synchronized void onLoadingFinished(Map<String, Object> params) {
+        if (requestId != null && !finished && requestId.equals(params.get("requestId"))) {
+            endTimestamp = ((Number) params.get("timestamp")).doubleValue();
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    // Tokens are counted as SSE data events in the finished body; falls back to chunks
+    // when Chrome has already evicted the body or the stream is not SSE
+    private int countTokens(String id, int chunks) {
+        try {
+            Map<String, Object> result = devTools.send(
+                new Command<Map<String, Object>>("Network.getResponseBody", Map.of("requestId", id), Json.MAP_TYPE));
+            String body = String.valueOf(result.get("body"));
+            if (Boolean.TRUE.equals(result.get("base64Encoded"))) {
+                body = new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+            }
+            int events = countDataEvents(body);
+            return events > 0 ? events : chunks;
+        } catch (RuntimeException e) {
+            return chunks;
+        }
+    }
+
+    static int countDataEvents(String body) {
+        int events = 0;
+        for (String event : body.split("\\r?\\n\\r?\\n")) {
+            boolean hasData = false;
+            boolean done = false;
+            for (String line : event.split("\\r?\\n")) {
+                if (line.startsWith("data:")) {
+                    hasData = true;
+                    done |= "[DONE]".equals(line.substring(5).trim());
+                } else if (line.startsWith("event:") && "error".equals(line.substring(6).trim())) {
+                    done = true;
+                }
+            }
+            if (hasData && !done) {
+                events++;
+            }
+        }
+        return events;
+    }
+
+    private static long toMicros(double seconds) {
+        return Math.max(0, Math.round(seconds * 1_000_000));
+    }
+}
@@ -0,0 +1,181 @@
+package base;
+
+import utils.KeywordMatcher;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class StreamingResponseValidator {
+    // Single-pass validator fed with reply chunks as they stream in. Tag balance, sentence
+    // count, keyword hits and avoidance phrases are tracked together in constant work per
+    // character, so a 200 KB reply costs the same as scanning it once and a broken reply
+    // can be rejected before the stream ends.
+    //
+    // Tag rules are exactly those of the old <[^>]*$|^[^<]*>|<[^>]*(<|$) regex: a '>' before
+    // any '<', a second '<' before the first is closed, or a '<' still open at the end.
+
+    private final KeywordMatcher.Scanner keywordScanner;
+    private final KeywordMatcher.Scanner avoidanceScanner;
+    private final boolean checkKeywords;
+
+    private final TagTracker tags = new TagTracker();
+    private final SentenceCounter sentences = new SentenceCounter();
+    private long length;
+
+    private boolean hasVisibleText;
+    private final char[] tail = new char[3];
+
+    private String failureReason;
+    // Time spent inside accept(); chunks usually arrive on a stream reader's thread, where
+    // PhaseMetrics has no test labels, so the caller reports this once the reply is in
+    private long busyNanos;
+
+    public StreamingResponseValidator(List<String> expectedKeywords) {
+        this.checkKeywords = expectedKeywords != null && !expectedKeywords.isEmpty();
+        this.keywordScanner = checkKeywords ? AIResponseValidator.getKeywordMatcher(expectedKeywords).newScanner() : null;
+        this.avoidanceScanner = AIResponseValidator.getAvoidanceMatcher().newScanner();
+    }
+
+    // Returns false once the reply can no longer pass, so the caller may stop reading
+    public boolean accept(CharSequence chunk) {
+        long start = System.nanoTime();
+        for (int i = 0, n = chunk.length(); i < n; i++) {
+            char c = chunk.charAt(i);
+            tags.accept(c);
+            sentences.accept(c);
+            if (c > ' ') {
+                hasVisibleText = true;
+            }
+            tail[0] = tail[1];
+            tail[1] = tail[2];
+            tail[2] = c;
+            length++;
+            if (checkKeywords) {
+                keywordScanner.accept(c);
+            }
+            avoidanceScanner.accept(c);
+        }
+        if (failureReason == null && tags.broken) {
+            failureReason = "broken HTML markup";
+        }
+        busyNanos += System.nanoTime() - start;
+        return failureReason == null;
+    }
+
+    public long getBusyNanos() {
+        return busyNanos;
+    }
+
+    public boolean isFailed() {
+        return failureReason != null;
+    }
+
+    // Why accept() returned false, or null while the reply can still pass
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    // Final once the stream has ended; an unclosed tag only counts as broken at the end
+    public boolean hasBrokenHTML() {
+        return tags.isBroken();
+    }
+
+    public int getSentenceCount() {
+        return sentences.getCount();
+    }
+
+    public boolean hasIncompleteThought() {
+        return endsWith("...") || endsWith("--") || getSentenceCount() < 1;
+    }
+
+    public boolean hasExpectedKeyword() {
+        return !checkKeywords || keywordScanner.hasMatch();
+    }
+
+    public BitSet getMatchedKeywords() {
+        return checkKeywords ? keywordScanner.getMatchedKeywords() : new BitSet();
+    }
+
+    public boolean hasAvoidancePhrase() {
+        return avoidanceScanner.hasMatch();
+    }
+
+    // Same verdict as AIResponseValidator.validateResponseQuality on the full text
+    public boolean isValid() {
+        return hasVisibleText && !hasIncompleteThought() && !hasBrokenHTML() && hasExpectedKeyword();
+    }
+
+    private boolean endsWith(String suffix) {
+        if (length < suffix.length()) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (tail[tail.length - suffix.length() + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean hasBrokenHTML(CharSequence text) {
+        TagTracker tags = new TagTracker();
+        for (int i = 0, n = text.length(); i < n && !tags.broken; i++) {
+            tags.accept(text.charAt(i));
+        }
+        return tags.isBroken();
+    }
+
+    public static int countSentences(CharSequence text) {
+        SentenceCounter sentences = new SentenceCounter();
+        for (int i = 0, n = text.length(); i < n; i++) {
+            sentences.accept(text.charAt(i));
+        }
+        return sentences.getCount();
+    }
+
+    private static final class TagTracker {
+        private boolean seenOpenBracket;
+        private boolean insideTag;
+        // Set by a '>' before any '<' or a second '<' inside a tag; nothing later can repair it
+        private boolean broken;
+
+        void accept(char c) {
+            if (c == '<') {
+                broken |= insideTag;
+                insideTag = true;
+                seenOpenBracket = true;
+            } else if (c == '>') {
+                broken |= !seenOpenBracket;
+                insideTag = false;
+            }
+        }
+
+        boolean isBroken() {
+            return broken || insideTag;
+        }
+    }
+
+    // Sentences are maximal runs of non-terminator characters, counted the way
+    // String.split("[.!?]+") does: a leading terminator adds an empty first piece
+    private static final class SentenceCounter {
+        private int runs;
+        private boolean inRun;
+        private boolean seenAny;
+        private boolean startsWithTerminator;
+
+        void accept(char c) {
+            if (c == '.' || c == '!' || c == '?') {
+                startsWithTerminator |= !seenAny;
+                inRun = false;
+            } else if (!inRun) {
+                inRun = true;
+                runs++;
+            }
+            seenAny = true;
+        }
+
+        int getCount() {
+            return runs == 0 ? 0 : runs + (startsWithTerminator ? 1 : 0);
+        }
+    }
+}
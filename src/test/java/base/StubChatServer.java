@@ -0,0 +1,486 @@
+package base;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import utils.CommonQuery;
+import utils.ConfigManager;
+import utils.TestDataLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class StubChatServer implements AutoCloseable {
+    // In-process stand-in for the chatbot: serves a page that matches the configured
+    // selectors plus the SSE endpoint HttpChatClient expects, with tunable latency,
+    // token rate and error injection so harness performance can be measured offline
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern ATTRIBUTE_TEST = Pattern.compile(
+        "([\\w-]+)\\s*(?:([~|^$*]?=)\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"']+)))?(?:\\s+[iIsS])?");
+    private static StubChatServer shared;
+
+    private final Map<String, String> scriptedResponses = new ConcurrentHashMap<>();
+    private final long timeToFirstTokenMillis;
+    private final double tokensPerSecond;
+    private final double errorRate;
+    private final Random random;
+    private final AtomicInteger conversations = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] page = renderPage().getBytes(StandardCharsets.UTF_8);
+
+    public StubChatServer(int port, long timeToFirstTokenMillis, double tokensPerSecond, double errorRate, long seed) {
+        this.timeToFirstTokenMillis = timeToFirstTokenMillis;
+        this.tokensPerSecond = tokensPerSecond;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start stub chat server on port " + port, e);
+        }
+        // Streams sleep between tokens, so every exchange gets its own thread
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-chat-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/api/chat", this::handleChat);
+        server.createContext("/", this::handlePage);
+        server.start();
+    }
+
+    public static StubChatServer fromConfig() {
+        return new StubChatServer(
+            ConfigManager.getIntProperty("stub.port", 0),
+            ConfigManager.getIntProperty("stub.ttft.ms", 300),
+            Double.parseDouble(ConfigManager.getProperty("stub.tokens.per.second", "50")),
+            Double.parseDouble(ConfigManager.getProperty("stub.error.rate", "0")),
+            ConfigManager.getIntProperty("stub.seed", 42));
+    }
+
+    // Starts one server for the JVM and points app.url and chat.api.url at it
+    public static synchronized StubChatServer startShared() {
+        if (shared == null) {
+            shared = fromConfig();
+            System.setProperty("app.url", shared.getBaseUrl());
+            System.setProperty("chat.api.url", shared.getApiUrl());
+            System.out.println("Stub chat server listening on " + shared.getBaseUrl());
+        }
+        return shared;
+    }
+
+    public static synchronized void stopShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    public StubChatServer script(String prompt, String response) {
+        scriptedResponses.put(prompt.trim(), response);
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    public String getApiUrl() {
+        return getBaseUrl() + "api/chat";
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handlePage(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, page.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(page);
+        }
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        JsonNode request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = mapper.readTree(in);
+        }
+        String prompt = request.path("prompt").asText("");
+        String language = request.path("language").asText("en");
+        String conversationId = request.hasNonNull("conversationId")
+            ? request.get("conversationId").asText() : "stub-" + conversations.incrementAndGet();
+
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+        if (roll < errorRate / 2) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+        boolean failMidStream = roll < errorRate;
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("X-Conversation-Id", conversationId);
+        exchange.sendResponseHeaders(200, 0);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            pause(timeToFirstTokenMillis);
+            String[] tokens = respond(prompt, language).split("(?<= )");
+            long interTokenMillis = tokensPerSecond <= 0 ? 0 : (long) (1000 / tokensPerSecond);
+            for (int i = 0; i < tokens.length; i++) {
+                if (failMidStream && i == tokens.length / 2) {
+                    writeEvent(out, "error", "{\"message\":\"injected stub failure\"}");
+                    return;
+                }
+                ObjectNode event = mapper.createObjectNode();
+                event.put("delta", tokens[i]);
+                if (i == 0) {
+                    event.put("conversationId", conversationId);
+                }
+                writeEvent(out, null, event.toString());
+                pause(interTokenMillis);
+            }
+            writeEvent(out, null, "[DONE]");
+        } catch (IOException e) {
+            // Client went away mid-stream
+        }
+    }
+
+    String respond(String prompt, String language) {
+        String trimmed = prompt.trim();
+        String scripted = scriptedResponses.get(trimmed);
+        if (scripted != null) {
+            return scripted;
+        }
+        for (CommonQuery query : TestDataLoader.loadFullTestData().getCommonQueries()) {
+            if (trimmed.equals(query.getEn()) || trimmed.equals(query.getAr())) {
+                String lang = trimmed.equals(query.getEn()) ? "en" : "ar";
+                String keywords = String.join(", ", query.getExpectedKeywords(lang));
+                return "ar".equals(lang)
+                    ? "إليك شرحاً موجزاً عن " + trimmed + " يتناول المفاهيم التالية: " + keywords + ". هذه المفاهيم مترابطة وتستخدم على نطاق واسع."
+                    : "Here is a short explanation of " + trimmed + " It covers the following ideas: " + keywords + ". These ideas are closely related and widely used.";
+            }
+        }
+        String topic = topicOf(trimmed);
+        if ("ar".equals(replyLanguage(trimmed, language))) {
+            return "إليك نظرة عامة حول " + topic + ". تتوفر عدة خدمات تغطي هذا الموضوع، وفيما يلي وصف موجز لكل منها. باختصار، يتوفر إرشاد عملي حول " + topic + " للمواطنين والشركات.";
+        }
+        return "Here is an overview of " + topic + ". Several services are available that cover this topic, and each of them is described below. In short, "
+            + topic + " is an area with practical guidance available for citizens and businesses.";
+    }
+
+    // A chatbot answers in the language it was asked in, whatever the UI is set to; prompts
+    // without letters (e.g. only markup and digits) fall back to the requested language
+    private static String replyLanguage(String prompt, String requested) {
+        boolean letters = false;
+        for (int i = 0; i < prompt.length(); i++) {
+            char c = prompt.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.ARABIC && Character.isLetter(c)) {
+                return "ar";
+            }
+            letters |= Character.isLetter(c);
+        }
+        return letters ? "en" : requested;
+    }
+
+    // Echo only plain words of the prompt so markup never reaches the reply
+    private static String topicOf(String prompt) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : prompt.split("[^\\p{L}\\p{Nd}]+")) {
+            if (word.length() >= 3 && words.size() < 6) {
+                words.add(word.toLowerCase());
+            }
+        }
+        return words.isEmpty() ? "your question" : String.join(" ", words);
+    }
+
+    static String renderPage() {
+        ObjectNode ui = mapper.createObjectNode();
+        ui.set("container", selectorChain(ConfigManager.getProperty("chat.container.selector", ""), "main"));
+        ui.set("input", selectorChain(ConfigManager.getProperty("chat.input.selector"), "textarea"));
+        ui.set("send", selectorChain(ConfigManager.getProperty("chat.send.selector"), "button"));
+        ui.set("turn", selectorChain(ConfigManager.getProperty("chat.response.selector"), "div"));
+        ui.set("loading", selectorChain(ConfigManager.getProperty("chat.loading.selector", ""), ""));
+        // "</" cannot appear inside the inline script
+        return PAGE_TEMPLATE
+            .replace("{{language}}", ConfigManager.getProperty("default.language", "en"))
+            .replace("{{ui}}", ui.toString().replace("</", "<\\/"));
+    }
+
+    // One element per compound selector, outermost first: tag, id, classes and attribute
+    // tests, joined by descendant or child combinators. Only the first of a comma-separated
+    // list is used; pseudo-classes have no element to build, so they are rejected.
+    static ArrayNode selectorChain(String selector, String fallback) {
+        String css = selector == null || selector.trim().isEmpty() ? fallback : selector.trim();
+        ArrayNode chain = mapper.createArrayNode();
+        ObjectNode part = null;
+        int i = 0;
+        while (i < css.length()) {
+            char c = css.charAt(i);
+            if (c == ',') {
+                break;
+            }
+            if (Character.isWhitespace(c) || c == '>') {
+                part = null;
+                i++;
+                continue;
+            }
+            if (part == null) {
+                part = chain.addObject();
+                part.putArray("classes");
+                part.putArray("attributes");
+            }
+            if (c == '#' || c == '.') {
+                int end = identifierEnd(css, i + 1);
+                String name = css.substring(i + 1, end);
+                if (c == '#') {
+                    part.put("id", name);
+                } else {
+                    ((ArrayNode) part.get("classes")).add(name);
+                }
+                i = end;
+            } else if (c == '[') {
+                int close = attributeEnd(css, i, selector);
+                ((ArrayNode) part.get("attributes")).add(attributeTest(css.substring(i + 1, close), selector));
+                i = close + 1;
+            } else if (c == '*') {
+                i++;
+            } else if (Character.isLetter(c)) {
+                int end = identifierEnd(css, i);
+                part.put("tag", css.substring(i, end).toLowerCase());
+                i = end;
+            } else {
+                throw new IllegalArgumentException("Stub page cannot render selector '" + selector + "' (at '" + css.substring(i) + "')");
+            }
+        }
+        return chain;
+    }
+
+    private static int identifierEnd(String css, int from) {
+        int end = from;
+        while (end < css.length() && (Character.isLetterOrDigit(css.charAt(end)) || css.charAt(end) == '-' || css.charAt(end) == '_')) {
+            end++;
+        }
+        return end;
+    }
+
+    // Index of the ']' closing the attribute test at from, skipping quoted values
+    private static int attributeEnd(String css, int from, String selector) {
+        char quote = 0;
+        for (int i = from + 1; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unclosed attribute test in selector '" + selector + "'");
+    }
+
+    // name, name=value, name^=value and the other operators; a trailing " i" or " s" flag is ignored
+    private static ObjectNode attributeTest(String test, String selector) {
+        Matcher matcher = ATTRIBUTE_TEST.matcher(test.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Stub page cannot render attribute test [" + test + "] in selector '" + selector + "'");
+        }
+        String value = matcher.group(3) != null ? matcher.group(3)
+            : matcher.group(4) != null ? matcher.group(4) : matcher.group(5) != null ? matcher.group(5) : "";
+        ObjectNode attribute = mapper.createObjectNode();
+        attribute.put("name", matcher.group(1));
+        attribute.put("op", matcher.group(2) == null ? "" : matcher.group(2));
+        attribute.put("value", value);
+        return attribute;
+    }
+
+    private static void writeEvent(OutputStream out, String eventType, String data) throws IOException {
+        StringBuilder event = new StringBuilder();
+        if (eventType != null) {
+            event.append("event: ").append(eventType).append('\n');
+        }
+        event.append("data: ").append(data).append("\n\n");
+        out.write(event.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Built from the configured chat.*.selector values (see renderPage), so the stand-in
+    // matches whatever the live chatbot is configured as
+    private static final String PAGE_TEMPLATE = String.join("\n",
+        "<!DOCTYPE html>",
+        "<html lang=\"{{language}}\">",
+        "<head><meta charset=\"utf-8\"><title>U-Ask Stub</title>",
+        "<style>body{font-family:sans-serif;margin:0}.stub-conversation{padding:16px 16px 120px}",
+        ".stub-turn{margin:12px 0;white-space:pre-wrap}",
+        ".stub-composer{position:fixed;bottom:0;left:0;right:0;display:flex;gap:8px;padding:12px;background:#fff}",
+        ".stub-composer > *{flex:1}</style></head>",
+        "<body>",
+        "<script>",
+        "(function () {",
+        "  var UI = {{ui}};",
+        "  var turn = 0, conversationId = null;",
+        "  // Nested elements for a chain of compound selectors; ^= and $= values are made unique by n",
+        "  function build(chain, n, defaultTag) {",
+        "    var root = null, leaf = null;",
+        "    chain.forEach(function (part, i) {",
+        "      var el = document.createElement(part.tag || (i === chain.length - 1 ? defaultTag : 'div'));",
+        "      if (part.id) { el.id = part.id; }",
+        "      part.classes.forEach(function (c) { el.classList.add(c); });",
+        "      part.attributes.forEach(function (a) { el.setAttribute(a.name, attributeValue(a, n)); });",
+        "      if (leaf) { leaf.appendChild(el); } else { root = el; }",
+        "      leaf = el;",
+        "    });",
+        "    return {root: root, leaf: leaf};",
+        "  }",
+        "  function attributeValue(a, n) {",
+        "    if (a.op === '^=') { return a.value + n; }",
+        "    if (a.op === '$=') { return n + a.value; }",
+        "    if (a.op === '*=') { return n + a.value + n; }",
+        "    return a.value;",
+        "  }",
+        "  var container = build(UI.container, '', 'main');",
+        "  container.leaf.classList.add('stub-conversation');",
+        "  document.body.appendChild(container.root);",
+        "  var composer = document.createElement('form');",
+        "  composer.className = 'stub-composer';",
+        "  composer.onsubmit = function () { return false; };",
+        "  var input = build(UI.input, '', 'textarea');",
+        "  var field = input.leaf;",
+        "  if (!('value' in field)) { field.contentEditable = 'true'; }",
+        "  field.setAttribute('placeholder', 'Message');",
+        "  var button = build(UI.send, '', 'button');",
+        "  if (button.leaf.tagName === 'BUTTON') { button.leaf.type = 'button'; }",
+        "  button.leaf.textContent = 'Send';",
+        "  composer.appendChild(input.root);",
+        "  composer.appendChild(button.root);",
+        "  document.body.appendChild(composer);",
+        "  function addTurn(role) {",
+        "    var built = build(UI.turn, ++turn, 'div');",
+        "    built.leaf.classList.add('stub-turn');",
+        "    built.leaf.setAttribute('data-role', role);",
+        "    built.leaf.setAttribute('dir', 'auto');",
+        "    var body = document.createElement('div');",
+        "    body.className = 'markdown';",
+        "    built.leaf.appendChild(body);",
+        "    container.leaf.appendChild(built.root);",
+        "    return body;",
+        "  }",
+        "  // A loading selector of classes and attributes marks the reply itself; one naming",
+        "  // an element (tag or id) gets an indicator element for as long as the reply streams",
+        "  function showLoading(reply) {",
+        "    if (!UI.loading.length) { return function () {}; }",
+        "    var part = UI.loading[0];",
+        "    if (UI.loading.length === 1 && !part.tag && !part.id) {",
+        "      part.classes.forEach(function (c) { reply.classList.add(c); });",
+        "      part.attributes.forEach(function (a) { reply.setAttribute(a.name, attributeValue(a, '')); });",
+        "      return function () {",
+        "        part.classes.forEach(function (c) { reply.classList.remove(c); });",
+        "        part.attributes.forEach(function (a) { reply.removeAttribute(a.name); });",
+        "      };",
+        "    }",
+        "    var indicator = build(UI.loading, '', 'span');",
+        "    document.body.appendChild(indicator.root);",
+        "    return function () { indicator.root.remove(); };",
+        "  }",
+        "  function handleEvent(raw, reply) {",
+        "    var type = 'message', data = [];",
+        "    raw.split('\\n').forEach(function (line) {",
+        "      if (line.indexOf('event:') === 0) { type = line.slice(6).trim(); }",
+        "      else if (line.indexOf('data:') === 0) { data.push(line.slice(5).replace(/^ /, '')); }",
+        "    });",
+        "    var payload = data.join('\\n');",
+        "    if (payload === '[DONE]') { return true; }",
+        "    if (type === 'error') { reply.textContent += ' [stream interrupted]'; return true; }",
+        "    var event = JSON.parse(payload);",
+        "    if (event.conversationId) { conversationId = event.conversationId; }",
+        "    reply.textContent += event.delta || '';",
+        "    return false;",
+        "  }",
+        "  async function send() {",
+        "    var prompt = ('value' in field ? field.value : field.textContent).trim();",
+        "    if (!prompt) { return; }",
+        "    if ('value' in field) { field.value = ''; } else { field.textContent = ''; }",
+        "    // The client marks the input with the language it is testing; the page default otherwise",
+        "    var language = field.lang || document.documentElement.lang;",
+        "    addTurn('user').textContent = prompt;",
+        "    var reply = addTurn('assistant');",
+        "    var hideLoading = showLoading(reply);",
+        "    try {",
+        "      var res = await fetch('/api/chat', {method: 'POST',",
+        "        headers: {'Content-Type': 'application/json', 'Accept': 'text/event-stream'},",
+        "        body: JSON.stringify({prompt: prompt, language: language, conversationId: conversationId})});",
+        "      if (!res.ok) { reply.textContent = 'Something went wrong (HTTP ' + res.status + ')'; return; }",
+        "      var reader = res.body.getReader(), decoder = new TextDecoder(), buffer = '', done = false;",
+        "      while (!done) {",
+        "        var chunk = await reader.read();",
+        "        if (chunk.done) { break; }",
+        "        buffer += decoder.decode(chunk.value, {stream: true});",
+        "        var idx;",
+        "        while (!done && (idx = buffer.indexOf('\\n\\n')) >= 0) {",
+        "          done = handleEvent(buffer.slice(0, idx), reply);",
+        "          buffer = buffer.slice(idx + 2);",
+        "        }",
+        "      }",
+        "    } finally {",
+        "      hideLoading();",
+        "    }",
+        "  }",
+        "  button.leaf.addEventListener('click', send);",
+        "  field.addEventListener('keydown', function (e) {",
+        "    if (e.key === 'Enter' && !e.shiftKey) { e.preventDefault(); send(); }",
+        "  });",
+        "})();",
+        "</script>",
+        "</body>",
+        "</html>");
+}
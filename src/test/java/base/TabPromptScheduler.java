@@ -0,0 +1,138 @@
+package base;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WindowType;
+import utils.ConfigManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TabPromptScheduler {
+    // Fans prompts out over several tabs of one browser session. Every prompt gets a
+    // freshly loaded tab, so it starts its own conversation, and tabs are polled round
+    // robin so replies are collected in the order they finish rather than the order
+    // they were sent. Total time approaches the slowest reply instead of the sum.
+
+    private final WebDriver driver;
+    private final AdaptiveWait wait;
+    private final int maxTabs;
+    private final long timeoutNanos = TimeUnit.SECONDS.toNanos(ConfigManager.getIntProperty("timeout.response", 60));
+    private final long pollIntervalMs = ConfigManager.getIntProperty("wait.poll.interval.ms", 250);
+
+    public TabPromptScheduler(WebDriver driver, AdaptiveWait wait, int maxTabs) {
+        this.driver = driver;
+        this.wait = wait;
+        this.maxTabs = Math.max(1, maxTabs);
+    }
+
+    // Replies in prompt order; a reply that timed out is returned incomplete with whatever text it had
+    public List<ChatResponse> run(List<String> prompts) {
+        String home = driver.getWindowHandle();
+        ChatResponse[] responses = new ChatResponse[prompts.size()];
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int i = 0; i < prompts.size(); i++) {
+            pending.add(i);
+        }
+        Deque<String> idleHandles = new ArrayDeque<>(List.of(home));
+        List<String> openedHandles = new ArrayList<>();
+        List<Tab> active = new ArrayList<>();
+
+        try {
+            while (!pending.isEmpty() || !active.isEmpty()) {
+                while (!pending.isEmpty() && active.size() < maxTabs) {
+                    String handle = idleHandles.poll();
+                    if (handle == null) {
+                        driver.switchTo().newWindow(WindowType.TAB);
+                        handle = driver.getWindowHandle();
+                        openedHandles.add(handle);
+                    }
+                    int index = pending.poll();
+                    active.add(startTab(handle, index, prompts.get(index)));
+                }
+
+                boolean finishedAny = false;
+                for (Iterator<Tab> it = active.iterator(); it.hasNext(); ) {
+                    Tab tab = it.next();
+                    driver.switchTo().window(tab.handle);
+                    boolean complete = tab.waiter.isResponseComplete();
+                    if (complete || System.nanoTime() - tab.startNanos > timeoutNanos) {
+                        responses[tab.index] = tab.finish(complete);
+                        it.remove();
+                        idleHandles.add(tab.handle);
+                        finishedAny = true;
+                    }
+                }
+                if (!finishedAny && !active.isEmpty()) {
+                    sleep(pollIntervalMs);
+                }
+            }
+        } finally {
+            closeTabs(openedHandles, home);
+        }
+        return Arrays.asList(responses);
+    }
+
+    private Tab startTab(String handle, int index, String prompt) {
+        driver.switchTo().window(handle);
+        // Loading the app URL gives every prompt its own conversation
+        driver.get(ConfigManager.getAppUrl());
+        ResponseWaiter waiter = new ResponseWaiter(driver, wait);
+        SeleniumChatClient client = new SeleniumChatClient(driver, wait, waiter);
+        // The clock (and the tab's timeout) starts at the click, after the throttle and input waits
+        long start = client.submit(prompt);
+        return new Tab(handle, index, prompt, waiter, client, start);
+    }
+
+    private void closeTabs(List<String> openedHandles, String home) {
+        for (String handle : openedHandles) {
+            try {
+                driver.switchTo().window(handle);
+                driver.close();
+            } catch (WebDriverException e) {
+                // Already gone; DriverPool closes stray tabs on reset anyway
+            }
+        }
+        driver.switchTo().window(home);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while polling chat tabs", e);
+        }
+    }
+
+    private static final class Tab {
+        final String handle;
+        final int index;
+        final String prompt;
+        final ResponseWaiter waiter;
+        final SeleniumChatClient client;
+        final long startNanos;
+
+        Tab(String handle, int index, String prompt, ResponseWaiter waiter, SeleniumChatClient client, long startNanos) {
+            this.handle = handle;
+            this.index = index;
+            this.prompt = prompt;
+            this.waiter = waiter;
+            this.client = client;
+            this.startNanos = startNanos;
+        }
+
+        // Caller has already switched to this tab; no chunk-level timing is available here.
+        // The reply is the turn after the tab's baseline, so a tab that timed out reads as
+        // empty rather than reporting its own prompt.
+        ChatResponse finish(boolean complete) {
+            long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            return new ChatResponse(prompt, client.getReplyText(), -1, totalMillis, 0, complete);
+        }
+    }
+}
@@ -1,77 +1,227 @@
 package base;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.By;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.WebDriverException;
+import org.testng.ITestResult;
+import org.testng.Reporter;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Parameters;
+import utils.ArtifactPipeline;
 import utils.ConfigManager;
+import utils.ResponseStore;
+import utils.TestData;
 import utils.TestDataLoader;
+import utils.WaitHistory;
 
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class TestBase {
-    protected WebDriver driver;
-    protected WebDriverWait wait;
-    protected Map<String, Object> testData;
-    protected String currentLanguage;
-    
-    @BeforeMethod
+    protected static final By CHAT_INPUT = SeleniumChatClient.CHAT_INPUT;
+    protected static final By SEND_BUTTON = SeleniumChatClient.SEND_BUTTON;
+    protected static final By AI_RESPONSE = SeleniumChatClient.AI_RESPONSE;
+    protected static final By LOADING_INDICATOR = SeleniumChatClient.LOADING_INDICATOR;
+
+    // Driver, waits and language live in a thread-confined TestContext so the
+    // same test instance can safely run methods on several workers
+
+    @BeforeSuite(alwaysRun = true)
+    public void startStubServer() {
+        // Offline runs swap the live chatbot for the in-process stand-in
+        if (ConfigManager.getBooleanProperty("stub.enabled", false)) {
+            StubChatServer.startShared();
+        }
+    }
+
+    @BeforeMethod(alwaysRun = true)
     @Parameters("language")
     public void setUp(String language) {
-        currentLanguage = language;
-        testData = TestDataLoader.loadTestData();
-        initializeDriver();
-        driver.get(ConfigManager.getProperty("app.url"));
-        wait = new WebDriverWait(driver, Duration.ofSeconds(30));
+        if (!requiresBrowser()) {
+            TestContext.bind(new TestContext(null, null, null, createChatClient(null, language), language));
+            return;
+        }
+        // Pooled sessions arrive reset and already on app.url
+        WebDriver driver = DriverPool.checkout();
+        AdaptiveWait wait = new AdaptiveWait(driver, language);
+        ResponseWaiter responseWaiter = new ResponseWaiter(driver, wait);
+        ChatClient seleniumClient = new SeleniumChatClient(driver, wait, responseWaiter, StreamTimingRecorder.attach(driver));
+        TestContext.bind(new TestContext(driver, wait, responseWaiter, createChatClient(seleniumClient, language), language));
     }
-    
-    private void initializeDriver() {
-        // Setup WebDriver using WebDriverManager
-        WebDriverManager.chromedriver().setup();
-        
-        ChromeOptions options = new ChromeOptions();
-        
-        // Mobile emulation for responsive testing
-        if (ConfigManager.getProperty("test.mobile").equals("true")) {
-            Map<String, Object> mobileEmulation = new HashMap<>();
-            mobileEmulation.put("deviceName", "iPhone 12");
-            options.setExperimentalOption("mobileEmulation", mobileEmulation);
+
+    // A second client on this test's session, for tests that compare answers across languages;
+    // the caller closes it
+    protected ChatClient createChatClient(String language) {
+        TestContext context = TestContext.current();
+        ChatClient seleniumClient = context.getDriver() == null ? null
+            : new SeleniumChatClient(context.getDriver(), context.getWait(), context.getResponseWaiter(), null, language);
+        return createChatClient(seleniumClient, language);
+    }
+
+    private static ChatClient createChatClient(ChatClient seleniumClient, String language) {
+        ChatClient client;
+        if (ChatClient.isReplayMode()) {
+            client = new ReplayChatClient(ResponseStore.shared(), language);
+        } else {
+            ChatClient live = ChatClient.isHttpBackend() ? new HttpChatClient(language) : seleniumClient;
+            client = "record".equals(ChatClient.getMode()) ? new RecordingChatClient(live, ResponseStore.shared(), language) : live;
         }
-        
-        // Common stable options
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--window-size=1920,1080");
-        options.addArguments("--disable-extensions");
-        options.addArguments("--disable-popup-blocking");
-        options.addArguments("--disable-notifications");
-        
-        // Remove headless for debugging, add back for CI/CD
-        // options.addArguments("--headless");
-        
-        driver = new ChromeDriver(options);
-        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
-        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
+        return RunHistoryListener.ENABLED && client != null ? new HistoryChatClient(client, language) : client;
     }
-    
-    @AfterMethod
-    public void tearDown() {
-        if (driver != null) {
-            driver.quit();
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown(ITestResult result) {
+        TestContext context = TestContext.unbind();
+        if (context != null) {
+            // The session is still on the failing page until it goes back to the pool
+            if (result.getStatus() == ITestResult.FAILURE && context.getDriver() != null) {
+                captureArtifacts(context.getDriver(), result,
+                    result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName() + "-" + context.getLanguage());
+            }
+            if (context.getChatClient() != null) {
+                context.getChatClient().close();
+            }
+            DriverPool.release(context.getDriver());
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void shutDownDriverPool() {
+        DriverPool.shutdown();
+        StubChatServer.stopShared();
+        ResponseStore.closeShared();
+        WaitHistory.saveShared();
+        ArtifactPipeline.shutdownShared();
+    }
+
+    // Content-only test classes override this so chat.backend=http skips the browser
+    protected boolean requiresBrowser() {
+        return true;
+    }
+
+    protected WebDriver getDriver() {
+        WebDriver driver = TestContext.current().getDriver();
+        if (driver == null) {
+            throw new IllegalStateException("No browser session: this test runs against chat.backend=" + ChatClient.getBackend());
         }
+        return driver;
+    }
+
+    protected AdaptiveWait getWait() {
+        return TestContext.current().getWait();
+    }
+
+    protected ResponseWaiter getResponseWaiter() {
+        return TestContext.current().getResponseWaiter();
+    }
+
+    protected TurnExtractor getTurnExtractor() {
+        return new TurnExtractor(getDriver());
     }
     
+    protected ChatClient getChatClient() {
+        return TestContext.current().getChatClient();
+    }
+
+    protected String getLanguage() {
+        return TestContext.current().getLanguage();
+    }
+
+    protected TestData getTestData() {
+        return TestDataLoader.loadTestData();
+    }
+
+    // Types the prompt and clicks send, respecting the shared rate limit
+    protected void sendPrompt(String prompt) {
+        new SeleniumChatClient(getDriver(), getWait(), getResponseWaiter()).submit(prompt);
+    }
+
     public void takeScreenshot(String testName) {
-        // Simple screenshot implementation
-        System.out.println("Screenshot would be captured for: " + testName);
-        // In real implementation, use:
-        // ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
+        captureArtifacts(getDriver(), Reporter.getCurrentTestResult(), testName);
+    }
+
+    // Only the browser round trips happen on the test thread; compressing and writing the
+    // bytes is left to the artifact pipeline. Links go into the test's reporter output.
+    private static void captureArtifacts(WebDriver driver, ITestResult result, String name) {
+        if (!ConfigManager.getBooleanProperty("report.screenshots", true)) {
+            return;
+        }
+        List<Path> artifacts = new ArrayList<>();
+        // Links are written before the files are; an artifact evicted later is marked in the report
+        Set<Path> evicted = ConcurrentHashMap.newKeySet();
+        Consumer<Path> onEvicted = artifact -> {
+            evicted.add(artifact);
+            if (result != null) {
+                markEvicted(result, artifact);
+            }
+        };
+        try {
+            byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            // PNG is already deflated, so only the page source is worth compressing
+            artifacts.add(ArtifactPipeline.shared().submit(name, "png", screenshot, false, onEvicted));
+            if (ConfigManager.getBooleanProperty("report.detailed.logs", true)) {
+                byte[] pageSource = driver.getPageSource().getBytes(StandardCharsets.UTF_8);
+                artifacts.add(ArtifactPipeline.shared().submit(name, "html", pageSource, true, onEvicted));
+            }
+        } catch (WebDriverException e) {
+            System.out.println("Could not capture artifacts for " + name + ": " + e.getMessage());
+        }
+        artifacts.removeIf(artifact -> artifact == null || evicted.contains(artifact));
+        if (artifacts.isEmpty()) {
+            return;
+        }
+        System.out.println("Failure artifacts for " + name + ": " + artifacts);
+        if (result != null) {
+            linkArtifacts(result, artifacts);
+        }
+    }
+
+    // Reports live in the TestNG output directory, one level above the suite's own
+    private static void linkArtifacts(ITestResult result, List<Path> artifacts) {
+        Path reports = Paths.get(result.getTestContext().getSuite().getOutputDirectory()).toAbsolutePath().getParent();
+        List<String> links = new ArrayList<>();
+        ITestResult previous = Reporter.getCurrentTestResult();
+        Reporter.setCurrentTestResult(result);
+        try {
+            for (Path artifact : artifacts) {
+                String href = reports.relativize(artifact.toAbsolutePath()).toString().replace('\\', '/');
+                links.add(href);
+                Reporter.log("<a href=\"" + href + "\">" + artifact.getFileName() + "</a>");
+            }
+        } finally {
+            Reporter.setCurrentTestResult(previous);
+        }
+        synchronized (result) {
+            result.setAttribute("artifacts", links);
+        }
+    }
+
+    // Runs on whichever test thread's submit pushed the artifact out of the queue
+    private static void markEvicted(ITestResult result, Path artifact) {
+        ITestResult previous = Reporter.getCurrentTestResult();
+        Reporter.setCurrentTestResult(result);
+        try {
+            Reporter.log(artifact.getFileName() + " was dropped before it was written (artifact queue full)");
+        } finally {
+            Reporter.setCurrentTestResult(previous);
+        }
+        synchronized (result) {
+            Object links = result.getAttribute("artifacts");
+            if (links instanceof List) {
+                String name = artifact.getFileName().toString();
+                ((List<?>) links).removeIf(link -> link.equals(name) || String.valueOf(link).endsWith("/" + name));
+            }
+        }
     }
 }
@@ -0,0 +1,62 @@
+package base;
+
+import org.openqa.selenium.WebDriver;
+
+public class TestContext {
+    // Each worker thread owns exactly one context for the duration of a test method
+    private static final ThreadLocal<TestContext> CURRENT = new ThreadLocal<>();
+
+    private final WebDriver driver;
+    private final AdaptiveWait wait;
+    private final ResponseWaiter responseWaiter;
+    private final ChatClient chatClient;
+    private final String language;
+
+    TestContext(WebDriver driver, AdaptiveWait wait, ResponseWaiter responseWaiter,
+                ChatClient chatClient, String language) {
+        this.driver = driver;
+        this.wait = wait;
+        this.responseWaiter = responseWaiter;
+        this.chatClient = chatClient;
+        this.language = language;
+    }
+
+    public static TestContext current() {
+        TestContext context = CURRENT.get();
+        if (context == null) {
+            throw new IllegalStateException("No test context bound to thread " + Thread.currentThread().getName());
+        }
+        return context;
+    }
+
+    static void bind(TestContext context) {
+        CURRENT.set(context);
+    }
+
+    static TestContext unbind() {
+        TestContext context = CURRENT.get();
+        CURRENT.remove();
+        return context;
+    }
+
+    // Null when the test runs against the HTTP backend without a browser
+    public WebDriver getDriver() {
+        return driver;
+    }
+
+    public AdaptiveWait getWait() {
+        return wait;
+    }
+
+    public ResponseWaiter getResponseWaiter() {
+        return responseWaiter;
+    }
+
+    public ChatClient getChatClient() {
+        return chatClient;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+}
@@ -0,0 +1,184 @@
+package base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import utils.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TurnExtractor {
+    // Reads conversation turns in one script round trip, returning only the turns from a
+    // given index on, each with its text, direction and HTML-cleanliness flags worked out
+    // in the page. findElements plus getText would ship a reference to every turn and then
+    // cost one more round trip per turn read, so that cost grew with the conversation.
+    private static final String EXTRACT_SCRIPT =
+        "var turns = document.querySelectorAll(arguments[0]), from = arguments[1];" +
+        "var start = from < 0 ? Math.max(0, turns.length - 1) : Math.min(from, turns.length);" +
+        "var out = [];" +
+        "for (var i = start; i < turns.length; i++) {" +
+        "  var el = turns[i], text = el.innerText || '';" +
+        "  var handlers = false, all = el.querySelectorAll('*');" +
+        "  for (var j = 0; j < all.length && !handlers; j++) {" +
+        "    for (var k = 0; k < all[j].attributes.length; k++) {" +
+        "      if (all[j].attributes[k].name.indexOf('on') === 0) { handlers = true; break; }" +
+        "    }" +
+        "  }" +
+        "  out.push({index: i, text: text," +
+        "    direction: getComputedStyle(el).direction," +
+        "    displayed: el.getClientRects().length > 0," +
+        "    activeContent: el.querySelector('script,iframe,object,embed') !== null," +
+        "    eventHandlers: handlers," +
+        "    scriptUrls: el.querySelector('[href^=\"javascript:\" i],[src^=\"javascript:\" i]') !== null," +
+        "    visibleMarkup: /<\\/?[a-z][^>]*>/i.test(text)});" +
+        "}" +
+        "return {total: turns.length, turns: out};";
+
+    private final WebDriver driver;
+    private final String turnSelector = ConfigManager.getProperty("chat.response.selector");
+    private int cursor;
+
+    public TurnExtractor(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    // Turns at index fromIndex and later (clamped to the turns present)
+    public Batch since(int fromIndex) {
+        return extract(Math.max(0, fromIndex));
+    }
+
+    // Newest turn, or null if the conversation is empty
+    public Turn latest() {
+        List<Turn> turns = extract(-1).getTurns();
+        return turns.isEmpty() ? null : turns.get(0);
+    }
+
+    // Turn at index, or null while the conversation is shorter than that
+    public Turn at(int index) {
+        Turn first = since(index).getTurns().stream().findFirst().orElse(null);
+        return first != null && first.getIndex() == index ? first : null;
+    }
+
+    // Turns added since the previous call, for callers that follow one conversation
+    public List<Turn> next() {
+        Batch batch = since(cursor);
+        cursor = batch.getTotal();
+        return batch.getTurns();
+    }
+
+    // After navigating to a fresh conversation
+    public void reset() {
+        cursor = 0;
+    }
+
+    private Batch extract(int fromIndex) {
+        Object result = ((JavascriptExecutor) driver).executeScript(EXTRACT_SCRIPT, turnSelector, fromIndex);
+        if (!(result instanceof Map)) {
+            throw new IllegalStateException("Turn extraction returned " + result);
+        }
+        Map<?, ?> map = (Map<?, ?>) result;
+        List<Turn> turns = new ArrayList<>();
+        for (Object item : (List<?>) map.get("turns")) {
+            Map<?, ?> turn = (Map<?, ?>) item;
+            turns.add(new Turn(((Number) turn.get("index")).intValue(), String.valueOf(turn.get("text")),
+                String.valueOf(turn.get("direction")), Boolean.TRUE.equals(turn.get("displayed")),
+                Boolean.TRUE.equals(turn.get("activeContent")), Boolean.TRUE.equals(turn.get("eventHandlers")),
+                Boolean.TRUE.equals(turn.get("scriptUrls")), Boolean.TRUE.equals(turn.get("visibleMarkup"))));
+        }
+        return new Batch(((Number) map.get("total")).intValue(), turns);
+    }
+
+    public static final class Batch {
+        private final int total;
+        private final List<Turn> turns;
+
+        Batch(int total, List<Turn> turns) {
+            this.total = total;
+            this.turns = Collections.unmodifiableList(turns);
+        }
+
+        // Turns in the whole conversation, so the next call can start here
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Turn> getTurns() {
+            return turns;
+        }
+
+        public Turn getLast() {
+            return turns.isEmpty() ? null : turns.get(turns.size() - 1);
+        }
+    }
+
+    public static final class Turn {
+        private final int index;
+        private final String text;
+        private final String direction;
+        private final boolean displayed;
+        private final boolean activeContent;
+        private final boolean eventHandlers;
+        private final boolean scriptUrls;
+        private final boolean visibleMarkup;
+
+        Turn(int index, String text, String direction, boolean displayed, boolean activeContent,
+             boolean eventHandlers, boolean scriptUrls, boolean visibleMarkup) {
+            this.index = index;
+            this.text = text;
+            this.direction = direction;
+            this.displayed = displayed;
+            this.activeContent = activeContent;
+            this.eventHandlers = eventHandlers;
+            this.scriptUrls = scriptUrls;
+            this.visibleMarkup = visibleMarkup;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        // Computed CSS direction: "rtl" or "ltr"
+        public String getDirection() {
+            return direction;
+        }
+
+        public boolean isRightToLeft() {
+            return "rtl".equals(direction);
+        }
+
+        public boolean isDisplayed() {
+            return displayed;
+        }
+
+        // script, iframe, object or embed elements inside the turn
+        public boolean hasActiveContent() {
+            return activeContent;
+        }
+
+        // on* attributes on any element inside the turn
+        public boolean hasEventHandlers() {
+            return eventHandlers;
+        }
+
+        // javascript: in an href or src
+        public boolean hasScriptUrls() {
+            return scriptUrls;
+        }
+
+        // Tags shown to the reader as text, e.g. escaped markup that was meant to render
+        public boolean hasVisibleMarkup() {
+            return visibleMarkup;
+        }
+
+        // Nothing executable made it into the rendered turn
+        public boolean isHtmlClean() {
+            return !activeContent && !eventHandlers && !scriptUrls;
+        }
+    }
+}
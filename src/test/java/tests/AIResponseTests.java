@@ -1,59 +1,63 @@
 package tests;
 
 import base.AIResponseValidator;
+import base.ChatClient;
+import base.ChatResponse;
+import base.ShardMethodInterceptor;
+import base.StreamingResponseValidator;
 import base.TestBase;
-import org.openqa.selenium.By;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.testng.Assert;
 import org.testng.annotations.Test;
-import utils.ConfigManager;
+import utils.CommonQuery;
 import utils.MultilingualHelper;
+import utils.PhaseMetrics;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class AIResponseTests extends TestBase {
     
-    private final By CHAT_INPUT = By.cssSelector(ConfigManager.getProperty("chat.input.selector"));
-    private final By SEND_BUTTON = By.cssSelector(ConfigManager.getProperty("chat.send.selector"));
-    private final By AI_RESPONSE = By.cssSelector(ConfigManager.getProperty("chat.response.selector"));
-    private final By LOADING_INDICATOR = By.cssSelector(ConfigManager.getProperty("chat.loading.selector"));
+    @Override
+    protected boolean requiresBrowser() {
+        return ChatClient.usesBrowser();
+    }
     
-    @Test
+    // Runs on every shard, each over its own slice of commonQueries
+    @Test(groups = ShardMethodInterceptor.CORPUS_GROUP)
     public void testCommonQueriesResponseQuality() {
-        List<Map<String, Object>> commonQueries = MultilingualHelper.getCommonQueries();
+        List<CommonQuery> commonQueries = MultilingualHelper.getCommonQueries();
+        List<String> prompts = new ArrayList<>();
+        List<StreamingResponseValidator> validators = new ArrayList<>();
+        for (CommonQuery query : commonQueries) {
+            prompts.add(MultilingualHelper.getPromptForLanguage(query, getLanguage()));
+            validators.add(new StreamingResponseValidator(MultilingualHelper.getExpectedKeywords(query, getLanguage())));
+        }
         
-        for (Map<String, Object> query : commonQueries) {
-            String prompt = MultilingualHelper.getPromptForLanguage(query, currentLanguage);
-            List<String> expectedKeywords = MultilingualHelper.getExpectedKeywords(query, currentLanguage);
+        // Each query runs in a fresh conversation (side by side in tabs when fanout.tabs > 1) and
+        // is validated chunk by chunk while it streams; a reply that can no longer pass is cut short
+        List<ChatResponse> responses = getChatClient().sendAll(prompts, i -> validators.get(i)::accept);
+        
+        for (int i = 0; i < prompts.size(); i++) {
+            String prompt = prompts.get(i);
+            StreamingResponseValidator validator = validators.get(i);
+            ChatResponse response = responses.get(i);
             
             System.out.println("Testing query: " + prompt);
             
-            WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-            chatInput.sendKeys(prompt);
-            
-            WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-            sendButton.click();
-            
-            // Wait for response
-            waitForResponse();
+            // The chunk-by-chunk work counts as validation too, not just the hallucination check
+            long verdictStart = System.nanoTime();
+            boolean valid = validator.isValid();
+            PhaseMetrics.observe(PhaseMetrics.VALIDATION, validator.getBusyNanos() + System.nanoTime() - verdictStart);
             
-            // Get the latest response
-            List<WebElement> responses = driver.findElements(AI_RESPONSE);
-            if (!responses.isEmpty()) {
-                WebElement latestResponse = responses.get(responses.size() - 1);
-                String responseText = latestResponse.getText();
+            if (response.hasText()) {
+                String responseText = response.getText();
                 
                 System.out.println("Response length: " + responseText.length());
                 System.out.println("First 200 chars: " + responseText.substring(0, Math.min(200, responseText.length())));
                 
-                // Validate response quality
-                boolean isValidResponse = AIResponseValidator.validateResponseQuality(
-                    responseText, expectedKeywords
-                );
-                
-                Assert.assertTrue(isValidResponse, 
+                Assert.assertFalse(validator.isFailed(),
+                    String.format("Response for '%s' failed while streaming: %s", prompt, validator.getFailureReason()));
+                Assert.assertTrue(valid, 
                     String.format("Response for '%s' should be valid and contain relevant keywords", prompt));
                 
                 // Check for hallucinations
@@ -63,13 +67,6 @@ public class AIResponseTests extends TestBase {
             } else {
                 System.out.println("No response captured for: " + prompt);
             }
-            
-            // Wait before next query
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
         }
     }
     
@@ -77,18 +74,10 @@ public class AIResponseTests extends TestBase {
     public void testResponseFormatting() {
         String testPrompt = "Explain artificial intelligence in simple terms";
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(testPrompt);
-        
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
-        
-        waitForResponse();
+        ChatResponse response = getChatClient().send(testPrompt);
         
-        List<WebElement> responses = driver.findElements(AI_RESPONSE);
-        if (!responses.isEmpty()) {
-            WebElement latestResponse = responses.get(responses.size() - 1);
-            String responseText = latestResponse.getText();
+        if (response.hasText()) {
+            String responseText = response.getText();
             
             // Check for clean formatting
             Assert.assertFalse(responseText.contains("<<") || responseText.contains(">>"), 
@@ -102,24 +91,19 @@ public class AIResponseTests extends TestBase {
     
     @Test
     public void testResponseTime() {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> validationRules = (Map<String, Object>) testData.get("validationRules");
-        long maxResponseTime = ((Number) validationRules.get("maxResponseTime")).longValue();
+        long maxResponseTime = getTestData().getValidationRules().getMaxResponseTime();
         
         String testPrompt = "Hello, tell me a short fact";
-        long startTime = System.currentTimeMillis();
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(testPrompt);
-        
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
-        
-        // Wait for any response element to appear
-        wait.until(ExpectedConditions.presenceOfElementLocated(AI_RESPONSE));
-        long responseTime = System.currentTimeMillis() - startTime;
+        ChatResponse response = getChatClient().send(testPrompt);
+        // Time to first token where the backend reports it, otherwise time to the complete reply
+        long responseTime = response.getTimeToFirstTokenMillis() >= 0
+            ? response.getTimeToFirstTokenMillis() : response.getTotalMillis();
         
         System.out.println("Response time: " + responseTime + "ms");
+        if (response.getTiming() != null) {
+            System.out.println("Stream timing: " + response.getTiming());
+        }
         
         Assert.assertTrue(responseTime <= maxResponseTime, 
             String.format("Response time should be under %d ms, was %d ms", maxResponseTime, responseTime));
@@ -130,18 +114,10 @@ public class AIResponseTests extends TestBase {
         // Test with gibberish input
         String problematicPrompt = "asdfghjklqwertyuiop12345%%%";
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(problematicPrompt);
+        ChatResponse response = getChatClient().send(problematicPrompt);
         
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
-        
-        waitForResponse();
-        
-        List<WebElement> responses = driver.findElements(AI_RESPONSE);
-        if (!responses.isEmpty()) {
-            WebElement latestResponse = responses.get(responses.size() - 1);
-            String responseText = latestResponse.getText().toLowerCase();
+        if (response.hasText()) {
+            String responseText = response.getText().toLowerCase();
             
             // ChatGPT usually tries to make sense of any input, so we check for coherent response
             boolean hasReasonableResponse = responseText.length() > 20 && 
@@ -152,23 +128,4 @@ public class AIResponseTests extends TestBase {
                 "Should provide a reasonable response even for unclear input");
         }
     }
-    
-    private void waitForResponse() {
-        // Wait for loading to complete and response to appear
-        try {
-            // Wait for loading indicator if present
-            try {
-                wait.until(ExpectedConditions.visibilityOfElementLocated(LOADING_INDICATOR));
-                wait.until(ExpectedConditions.invisibilityOfElementLocated(LOADING_INDICATOR));
-            } catch (Exception e) {
-                // Loading indicator not found, continue
-            }
-            
-            // Wait for new response element
-            Thread.sleep(5000);
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
 }
@@ -1,36 +1,28 @@
 package tests;
 
+import base.RateLimiter;
 import base.TestBase;
-import org.openqa.selenium.By;
+import base.TurnExtractor;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.testng.Assert;
 import org.testng.annotations.Test;
-import utils.ConfigManager;
-import utils.MultilingualHelper;
 
 import java.util.List;
 
 public class ChatbotUITests extends TestBase {
     
-    // ChatGPT specific selectors
-    private final By CHAT_INPUT = By.cssSelector(ConfigManager.getProperty("chat.input.selector"));
-    private final By SEND_BUTTON = By.cssSelector(ConfigManager.getProperty("chat.send.selector"));
-    private final By AI_RESPONSE = By.cssSelector(ConfigManager.getProperty("chat.response.selector"));
-    private final By LOADING_INDICATOR = By.cssSelector(ConfigManager.getProperty("chat.loading.selector"));
-    
     @Test
     public void testChatInterfaceLoads() {
-        System.out.println("Testing ChatGPT interface loading for language: " + currentLanguage);
+        System.out.println("Testing ChatGPT interface loading for language: " + getLanguage());
         
         // Wait for page to load and check key elements
-        WebElement chatInput = wait.until(ExpectedConditions.visibilityOfElementLocated(CHAT_INPUT));
+        WebElement chatInput = getWait().visible(CHAT_INPUT);
         Assert.assertTrue(chatInput.isDisplayed(), "Chat input should be visible");
         Assert.assertTrue(chatInput.isEnabled(), "Chat input should be enabled");
         
         // Check if send button is present
-        List<WebElement> sendButtons = driver.findElements(SEND_BUTTON);
+        List<WebElement> sendButtons = getDriver().findElements(SEND_BUTTON);
         Assert.assertFalse(sendButtons.isEmpty(), "Send button should be present");
     }
     
@@ -38,16 +30,17 @@ public class ChatbotUITests extends TestBase {
     public void testMessageSendFunctionality() {
         String testMessage = "Hello, how are you?";
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
+        WebElement chatInput = getWait().clickable(CHAT_INPUT);
         chatInput.sendKeys(testMessage);
         
         // Wait for send button to be enabled and click
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
+        WebElement sendButton = getWait().clickable(SEND_BUTTON);
+        RateLimiter.shared().acquire();
         sendButton.click();
         
         // Wait for loading to start
         try {
-            wait.until(ExpectedConditions.visibilityOfElementLocated(LOADING_INDICATOR));
+            getWait().visible(LOADING_INDICATOR);
             System.out.println("Loading indicator appeared");
         } catch (Exception e) {
             System.out.println("No loading indicator found, continuing...");
@@ -55,8 +48,8 @@ public class ChatbotUITests extends TestBase {
         
         // Wait for response
         try {
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(LOADING_INDICATOR));
-            List<WebElement> responses = wait.until(ExpectedConditions.numberOfElementsToBeMoreThan(AI_RESPONSE, 1));
+            getWait().invisible(LOADING_INDICATOR);
+            List<WebElement> responses = getWait().moreThan(AI_RESPONSE, 1);
             Assert.assertFalse(responses.isEmpty(), "Should receive AI response");
         } catch (Exception e) {
             System.out.println("Response loading took longer than expected");
@@ -67,24 +60,16 @@ public class ChatbotUITests extends TestBase {
     public void testResponseRendering() {
         String testPrompt = "What is artificial intelligence?";
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(testPrompt);
-        
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
+        sendPrompt(testPrompt);
         
-        // Wait for response with longer timeout
-        try {
-            Thread.sleep(5000); // Wait for initial processing
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // Wait for the reply to finish streaming
+        getResponseWaiter().awaitResponse();
         
-        // Check for any response elements
-        List<WebElement> responses = driver.findElements(AI_RESPONSE);
-        if (!responses.isEmpty()) {
-            WebElement latestResponse = responses.get(responses.size() - 1);
+        // Check the newest turn (one script call for text, visibility and markup checks)
+        TurnExtractor.Turn latestResponse = getTurnExtractor().latest();
+        if (latestResponse != null) {
             Assert.assertTrue(latestResponse.isDisplayed(), "Latest AI response should be visible");
+            Assert.assertTrue(latestResponse.isHtmlClean(), "Latest AI response should not render executable markup");
             String responseText = latestResponse.getText();
             Assert.assertFalse(responseText.trim().isEmpty(), "AI response should not be empty");
             System.out.println("Response received: " + responseText.substring(0, Math.min(100, responseText.length())));
@@ -97,13 +82,14 @@ public class ChatbotUITests extends TestBase {
     public void testInputClearAfterSend() {
         String testMessage = "Test message for clearing";
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
+        WebElement chatInput = getWait().clickable(CHAT_INPUT);
         chatInput.sendKeys(testMessage);
         
         // Store initial input value
         String initialValue = chatInput.getText();
         
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
+        WebElement sendButton = getWait().clickable(SEND_BUTTON);
+        RateLimiter.shared().acquire();
         sendButton.click();
         
         // Wait a bit and check if input is cleared or ready for new input
@@ -113,7 +99,7 @@ public class ChatbotUITests extends TestBase {
             Thread.currentThread().interrupt();
         }
         
-        WebElement newChatInput = driver.findElement(CHAT_INPUT);
+        WebElement newChatInput = getDriver().findElement(CHAT_INPUT);
         String newValue = newChatInput.getText();
         
         // Input should be cleared or different from original
@@ -124,26 +110,17 @@ public class ChatbotUITests extends TestBase {
     public void testScrollFunctionality() {
         // Send multiple messages to test scrolling
         for (int i = 0; i < 3; i++) {
-            WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-            chatInput.sendKeys("Test message " + i);
-            
-            WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-            sendButton.click();
+            sendPrompt("Test message " + i);
             
-            // Wait between messages
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            // Wait for each reply before sending the next message
+            getResponseWaiter().awaitResponse();
         }
         
         // Verify conversation history exists
-        List<WebElement> conversationTurns = driver.findElements(AI_RESPONSE);
-        Assert.assertTrue(conversationTurns.size() >= 2, "Should have multiple conversation turns");
+        Assert.assertTrue(getResponseWaiter().getTurnCount() >= 2, "Should have multiple conversation turns");
         
         // Check if page is scrollable (basic check)
-        JavascriptExecutor js = (JavascriptExecutor) driver;
+        JavascriptExecutor js = (JavascriptExecutor) getDriver();
         Long pageHeight = (Long) js.executeScript("return document.body.scrollHeight");
         Long viewportHeight = (Long) js.executeScript("return window.innerHeight");
         
@@ -0,0 +1,62 @@
+package tests;
+
+import base.LoadGenerator;
+import base.TestBase;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import utils.ConfigManager;
+import utils.LatencyHistogram;
+import utils.MultilingualHelper;
+import utils.ValidationRules;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class LoadTests extends TestBase {
+    // Run with: mvn test -Dtestng.suite=testng-load.xml (add -Dstub.enabled=true for offline runs)
+
+    @Override
+    protected boolean requiresBrowser() {
+        return false;
+    }
+
+    @Test
+    public void testLatencyPercentilesUnderLoad() {
+        String endpoint = ConfigManager.getProperty("chat.api.url", "");
+        if (endpoint.isEmpty()) {
+            throw new SkipException("Load mode talks to the chat API directly; set chat.api.url or stub.enabled=true");
+        }
+
+        List<String> prompts = MultilingualHelper.getCommonQueries().stream()
+            .map(query -> MultilingualHelper.getPromptForLanguage(query, getLanguage()))
+            .collect(Collectors.toList());
+        LoadGenerator generator = LoadGenerator.fromConfig(endpoint, getLanguage(), prompts);
+
+        LoadGenerator.Result result = generator.run(ConfigManager.getIntProperty("load.timeout.seconds", 300));
+        LatencyHistogram latency = result.getLatency();
+
+        System.out.println("Load run (" + getLanguage() + "): " + result.getCompletedTurns() + " turns in "
+            + result.getElapsedMillis() + " ms, " + String.format("%.2f", result.getThroughputPerSecond()) + " turns/s, "
+            + result.getFailedTurns() + " failed, " + result.getRejectedConversations() + " shed");
+        System.out.println("  latency " + latency.summary("ms"));
+        System.out.println("  ttft    " + result.getTimeToFirstToken().summary("ms"));
+
+        Assert.assertFalse(result.isTimedOut(), "Load run should finish within load.timeout.seconds");
+        Assert.assertTrue(latency.getCount() > 0, "Load run should complete at least one turn");
+
+        ValidationRules rules = getTestData().getValidationRules();
+        for (Map.Entry<String, Long> budget : rules.getLatencyBudgets().entrySet()) {
+            long observed = latency.getValueAtPercentile(ValidationRules.parsePercentile(budget.getKey()));
+            Assert.assertTrue(observed <= budget.getValue(),
+                String.format("%s latency %d ms should be within budget of %d ms", budget.getKey(), observed, budget.getValue()));
+        }
+
+        double maxErrorRate = Double.parseDouble(ConfigManager.getProperty("load.max.error.rate", "0.01"));
+        long attempted = result.getCompletedTurns() + result.getFailedTurns();
+        double errorRate = attempted == 0 ? 0 : result.getFailedTurns() / (double) attempted;
+        Assert.assertTrue(errorRate <= maxErrorRate,
+            String.format("Error rate %.3f should not exceed load.max.error.rate %.3f", errorRate, maxErrorRate));
+    }
+}
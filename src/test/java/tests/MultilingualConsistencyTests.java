@@ -0,0 +1,53 @@
+package tests;
+
+import base.AIResponseValidator;
+import base.ChatClient;
+import base.ChatResponse;
+import base.ShardMethodInterceptor;
+import base.TestBase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.ConsistencyCase;
+import utils.CrossLingualSimilarity;
+
+public class MultilingualConsistencyTests extends TestBase {
+    
+    @Override
+    protected boolean requiresBrowser() {
+        return ChatClient.usesBrowser();
+    }
+    
+    @Test(groups = ShardMethodInterceptor.CORPUS_GROUP)
+    public void testEnglishAndArabicAnswersAgree() {
+        try (ChatClient english = createChatClient("en"); ChatClient arabic = createChatClient("ar")) {
+            for (ConsistencyCase consistencyCase : getTestData().getMultilingualConsistency()) {
+                english.newConversation();
+                ChatResponse englishResponse = english.send(consistencyCase.getEn());
+                arabic.newConversation();
+                ChatResponse arabicResponse = arabic.send(consistencyCase.getAr());
+                
+                System.out.println("Testing intent: " + consistencyCase.getIntent());
+                
+                if (englishResponse.hasText() && arabicResponse.hasText()) {
+                    double similarity = AIResponseValidator.scoreMultilingualConsistency(
+                        englishResponse.getText(), arabicResponse.getText());
+                    System.out.println(String.format("Cross-language similarity: %.3f", similarity));
+                    
+                    boolean consistent = AIResponseValidator.validateMultilingualConsistency(
+                        englishResponse.getText(), arabicResponse.getText());
+                    if (CrossLingualSimilarity.isEnforced()) {
+                        Assert.assertTrue(consistent,
+                            String.format("English and Arabic answers for '%s' should agree (similarity %.3f)",
+                                consistencyCase.getIntent(), similarity));
+                    } else if (!consistent) {
+                        System.out.println(String.format("Advisory: answers for '%s' do not agree (similarity %.3f, "
+                            + "consistency.min.similarity=%.3f); set consistency.enforce=true to fail on it",
+                            consistencyCase.getIntent(), similarity, CrossLingualSimilarity.getDefault().getThreshold()));
+                    }
+                } else {
+                    System.out.println("No response captured for: " + consistencyCase.getIntent());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package tests;
+
+import base.RegressionDetector;
+import base.TestBase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.RunHistory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RegressionDetectorTests extends TestBase {
+    // The statistics and the run history behind RegressionDetector's exit code, checked on
+    // known inputs; no chatbot involved
+
+    @Override
+    protected boolean requiresBrowser() {
+        return false;
+    }
+
+    @Test
+    public void testSignedRankMatchesKnownPValues() {
+        // Exact distribution: 1 of the 2^5 sign assignments reaches W+ = 15, 2 reach 14
+        Assert.assertEquals(RegressionDetector.signedRankGreater(new double[]{1, 2, 3, 4, 5}), 1 / 32.0, 1e-12);
+        Assert.assertEquals(RegressionDetector.signedRankGreater(new double[]{-1, 2, 3, 4, 5}), 2 / 32.0, 1e-12);
+        Assert.assertEquals(RegressionDetector.signedRankGreater(new double[]{-1, -2, -3, -4, -5}), 1.0, 1e-12);
+        // Ten tied differences: normal approximation with tie and continuity correction
+        double[] tied = new double[10];
+        Arrays.fill(tied, 0.2);
+        Assert.assertEquals(RegressionDetector.signedRankGreater(tied), 9.520975e-4, 1e-9);
+        Assert.assertEquals(RegressionDetector.signedRankGreater(new double[]{0, 0, 0}), 1.0, 1e-12,
+            "No differences means no evidence of a slowdown");
+    }
+
+    @Test
+    public void testFisherMatchesKnownPValues() {
+        // Lady tasting tea: 3 of 4 against 1 of 4, p = 17/70
+        Assert.assertEquals(RegressionDetector.fisherGreater(3, 4, 1, 4), 17 / 70.0, 1e-9);
+        // Every current test failing, none before: 1 / C(25, 5)
+        Assert.assertEquals(RegressionDetector.fisherGreater(5, 5, 0, 20), 1 / 53130.0, 1e-12);
+        Assert.assertEquals(RegressionDetector.fisherGreater(0, 10, 5, 50), 1.0, 1e-9);
+        Assert.assertEquals(RegressionDetector.fisherGreater(0, 10, 0, 50), 1.0, 1e-9);
+    }
+
+    // Shards of one run merge on read; a torn last record is cut off on reopen and appends
+    // carry on after the last whole record
+    @Test
+    public void testRunHistoryRoundTripsAndDropsTornTail() throws IOException {
+        Path directory = Files.createTempDirectory("run-history");
+        Path file = directory.resolve(RunHistory.FILE_NAME);
+        try {
+            long intact;
+            try (RunHistory history = RunHistory.open(file)) {
+                history.append(run("run-a", 100, "AIResponseTests.testA", "en", RunHistory.Verdict.PASSED, 1200, true));
+                history.append(run("run-a", 150, "AIResponseTests.testB", "ar", RunHistory.Verdict.FAILED, -1, false));
+                intact = Files.size(file);
+                history.append(run("run-b", 300, "SecurityTests.testC", null, RunHistory.Verdict.SKIPPED, 80, true));
+            }
+
+            try (RunHistory history = RunHistory.open(file)) {
+                Assert.assertEquals(history.getRunIds(), Arrays.asList("run-a", "run-b"));
+                RunHistory.Run merged = history.read("run-a");
+                Assert.assertEquals(merged.getStartedAt(), 100);
+                Assert.assertEquals(merged.getFinishedAt(), 151);
+                Assert.assertEquals(merged.getTests().size(), 2);
+                RunHistory.TestResult failed = merged.getTests().get(1);
+                Assert.assertEquals(failed.getTest(), "AIResponseTests.testB");
+                Assert.assertEquals(failed.getLanguage(), "ar");
+                Assert.assertEquals(failed.getVerdict(), RunHistory.Verdict.FAILED);
+                RunHistory.PromptSample first = merged.getPrompts().get(0);
+                Assert.assertEquals(first.getPrompt(), "ما هي الخدمات المتاحة؟");
+                Assert.assertEquals(first.getTimeToFirstTokenMillis(), 1200);
+                Assert.assertTrue(first.isComplete() && first.isPassed());
+                RunHistory.PromptSample second = merged.getPrompts().get(1);
+                Assert.assertEquals(second.getTimeToFirstTokenMillis(), -1);
+                Assert.assertFalse(second.isComplete() || second.isPassed());
+                Assert.assertEquals(merged.getPhases().get(1).getMicros(), 2_500_000_000L);
+                Assert.assertEquals(history.read("run-b").getTests().get(0).getLanguage(), "");
+                Assert.assertNull(history.read("run-c"));
+            }
+
+            // An interrupted append: run-b's record loses its last bytes
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(Files.size(file) - 3);
+            }
+            try (RunHistory history = RunHistory.open(file)) {
+                Assert.assertEquals(history.getRunIds(), Collections.singletonList("run-a"));
+                Assert.assertEquals(Files.size(file), intact, "The torn record is truncated away");
+                history.append(run("run-c", 400, "SecurityTests.testD", "en", RunHistory.Verdict.PASSED, 90, true));
+            }
+            // A record header promising more bytes than follow
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.allocate(10).putInt(0, 1_000));
+            }
+            try (RunHistory history = RunHistory.open(file)) {
+                Assert.assertEquals(history.getRunIds(), Arrays.asList("run-a", "run-c"));
+                Assert.assertEquals(history.read("run-c").getPrompts().get(0).getTotalMillis(), 95);
+                Assert.assertEquals(history.read("run-a").getTests().size(), 2);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static RunHistory.Run run(String id, long startedAt, String test, String language,
+                                      RunHistory.Verdict verdict, long ttftMillis, boolean complete) {
+        boolean passed = verdict == RunHistory.Verdict.PASSED;
+        List<RunHistory.TestResult> tests = Collections.singletonList(new RunHistory.TestResult(test, language, verdict, 2_000));
+        List<RunHistory.PromptSample> prompts = Collections.singletonList(new RunHistory.PromptSample(
+            test, language, "ما هي الخدمات المتاحة؟", ttftMillis, ttftMillis + 5, 12, 340, complete, passed));
+        List<RunHistory.PhaseTotal> phases = Collections.singletonList(
+            new RunHistory.PhaseTotal(test, language, "validation", 3, complete ? 1_500 : 2_500_000_000L));
+        return new RunHistory.Run(id, startedAt, startedAt + 1, tests, prompts, phases);
+    }
+}
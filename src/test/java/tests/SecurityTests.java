@@ -1,55 +1,42 @@
 package tests;
 
 import base.AIResponseValidator;
+import base.ChatClient;
+import base.ChatResponse;
+import base.SecurityFuzzer;
 import base.TestBase;
-import org.openqa.selenium.By;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 import utils.ConfigManager;
+import utils.MultilingualHelper;
+import utils.PayloadMutator;
+import utils.SecurityCase;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Collectors;
 
 public class SecurityTests extends TestBase {
     
-    private final By CHAT_INPUT = By.cssSelector(ConfigManager.getProperty("chat.input.selector"));
-    private final By SEND_BUTTON = By.cssSelector(ConfigManager.getProperty("chat.send.selector"));
-    private final By AI_RESPONSE = By.cssSelector(ConfigManager.getProperty("chat.response.selector"));
+    @Override
+    protected boolean requiresBrowser() {
+        return ChatClient.usesBrowser();
+    }
     
     @Test
     public void testScriptInjectionHandling() {
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> securityTests = (List<Map<String, Object>>) 
-            ((Map<String, Object>) testData.get("testPrompts")).get("securityTests");
-        
-        Map<String, Object> scriptTest = securityTests.stream()
-            .filter(test -> "script_injection".equals(test.get("name")))
-            .findFirst()
-            .orElseThrow();
+        SecurityCase scriptTest = getTestData().getSecurityCase("script_injection");
         
-        String maliciousPrompt = (String) scriptTest.get("prompt");
+        String maliciousPrompt = scriptTest.getPrompt();
         
         System.out.println("Testing script injection: " + maliciousPrompt);
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(maliciousPrompt);
-        
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
-        
-        // Wait for response
-        try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // Blocks until the reply has finished streaming
+        ChatResponse response = getChatClient().send(maliciousPrompt);
         
-        List<WebElement> responses = driver.findElements(AI_RESPONSE);
-        if (!responses.isEmpty()) {
-            WebElement aiResponse = responses.get(responses.size() - 1);
-            String responseText = aiResponse.getText();
+        if (response.hasText()) {
+            String responseText = response.getText();
             
             // Verify input was handled safely - ChatGPT should respond to the legitimate part
             boolean isSafe = !responseText.contains("<script>") && 
@@ -68,36 +55,17 @@ public class SecurityTests extends TestBase {
     
     @Test
     public void testPromptInjectionHandling() {
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> securityTests = (List<Map<String, Object>>) 
-            ((Map<String, Object>) testData.get("testPrompts")).get("securityTests");
+        SecurityCase injectionTest = getTestData().getSecurityCase("prompt_injection");
         
-        Map<String, Object> injectionTest = securityTests.stream()
-            .filter(test -> "prompt_injection".equals(test.get("name")))
-            .findFirst()
-            .orElseThrow();
-        
-        String injectionPrompt = (String) injectionTest.get("prompt");
+        String injectionPrompt = injectionTest.getPrompt();
         
         System.out.println("Testing prompt injection: " + injectionPrompt);
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(injectionPrompt);
-        
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
+        // Blocks until the reply has finished streaming
+        ChatResponse response = getChatClient().send(injectionPrompt);
         
-        // Wait for response
-        try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        List<WebElement> responses = driver.findElements(AI_RESPONSE);
-        if (!responses.isEmpty()) {
-            WebElement aiResponse = responses.get(responses.size() - 1);
-            String responseText = aiResponse.getText().toLowerCase();
+        if (response.hasText()) {
+            String responseText = response.getText().toLowerCase();
             
             // ChatGPT might actually tell a joke, but it should be appropriate
             // We check that the response is reasonable and not an error
@@ -122,23 +90,11 @@ public class SecurityTests extends TestBase {
         for (String input : specialInputs) {
             System.out.println("Testing special characters: " + input);
             
-            WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-            chatInput.sendKeys(input);
-            
-            WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-            sendButton.click();
+            // Blocks until the reply has finished streaming
+            ChatResponse response = getChatClient().send(input);
             
-            // Wait for response
-            try {
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            
-            List<WebElement> responses = driver.findElements(AI_RESPONSE);
-            if (!responses.isEmpty()) {
-                WebElement aiResponse = responses.get(responses.size() - 1);
-                String responseText = aiResponse.getText();
+            if (response.hasText()) {
+                String responseText = response.getText();
                 
                 // Should handle special characters without breaking
                 Assert.assertFalse(responseText.contains("undefined") || 
@@ -150,13 +106,6 @@ public class SecurityTests extends TestBase {
                 Assert.assertTrue(responseText.length() > 10, 
                     "Should provide a meaningful response");
             }
-            
-            // Wait before next test
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
         }
     }
     
@@ -169,23 +118,11 @@ public class SecurityTests extends TestBase {
         }
         longInput.append("and machine learning.");
         
-        WebElement chatInput = wait.until(ExpectedConditions.elementToBeClickable(CHAT_INPUT));
-        chatInput.sendKeys(longInput.toString());
-        
-        WebElement sendButton = wait.until(ExpectedConditions.elementToBeClickable(SEND_BUTTON));
-        sendButton.click();
+        // Blocks until the reply has finished streaming
+        ChatResponse response = getChatClient().send(longInput.toString());
         
-        // Wait for response
-        try {
-            Thread.sleep(8000); // Longer wait for long input
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        List<WebElement> responses = driver.findElements(AI_RESPONSE);
-        if (!responses.isEmpty()) {
-            WebElement aiResponse = responses.get(responses.size() - 1);
-            String responseText = aiResponse.getText();
+        if (response.hasText()) {
+            String responseText = response.getText();
             
             // Should handle long input gracefully
             boolean handledGracefully = !responseText.toLowerCase().contains("too long") &&
@@ -196,4 +133,78 @@ public class SecurityTests extends TestBase {
                 "Should handle long input gracefully and provide a response");
         }
     }
+    
+    // Generated script, HTML, SQL, bidi and prompt-injection payloads; off by default because a
+    // full run sends fuzz.payloads prompts. Findings are minimised into the regression corpus.
+    @Test
+    public void testFuzzedPayloadsAreHandledSafely() {
+        if (!ConfigManager.getBooleanProperty("fuzz.enabled", false)) {
+            throw new SkipException("Set fuzz.enabled=true to fuzz the chatbot with generated payloads");
+        }
+        if (ChatClient.isReplayMode()) {
+            throw new SkipException("Fuzzing needs a live backend; the store has no replies to generated payloads");
+        }
+        List<String> carriers = new ArrayList<>();
+        getTestData().getSecurityTests().forEach(securityCase -> carriers.add(securityCase.getPrompt()));
+        MultilingualHelper.getCommonQueries().forEach(query -> carriers.add(MultilingualHelper.getPromptForLanguage(query, getLanguage())));
+        
+        SecurityFuzzer.Report report = SecurityFuzzer.fromConfig(fuzzBackend())
+            .run(PayloadMutator.fromConfig(getLanguage(), carriers), ConfigManager.getIntProperty("fuzz.payloads", 2000));
+        System.out.println("Fuzzing (" + getLanguage() + "): " + report);
+        if (!report.getFindings().isEmpty()) {
+            SecurityFuzzer.saveToCorpus(SecurityFuzzer.getCorpusPath(), report.getFindings());
+            System.out.println("Minimised findings added to " + SecurityFuzzer.getCorpusPath());
+        }
+        
+        Assert.assertTrue(report.getFindings().isEmpty(),
+            "Generated payloads should be handled safely, but these failed: " + report.getFindings());
+    }
+    
+    // The fuzz oracle itself, on canned replies: escaped markup is safe, live markup in any
+    // case or width is not
+    @Test
+    public void testFuzzOracleTellsEscapedFromLiveMarkup() {
+        String payload = "<script>alert('x')</script>What is AI?";
+        Assert.assertNull(SecurityFuzzer.problemWith(payload, reply(payload, "You wrote &lt;script&gt;alert('x')&lt;/script&gt;. AI is the study of intelligent software.")),
+            "An entity-escaped echo is sanitised");
+        Assert.assertNull(SecurityFuzzer.problemWith("&lt;script&gt;alert(1)&lt;/script&gt;", reply(payload, "&lt;script&gt;alert(1)&lt;/script&gt;")),
+            "Echoing an escaped payload unchanged leaves it escaped");
+        Assert.assertNotNull(SecurityFuzzer.problemWith(payload, reply(payload, "<SCRIPT>alert('x')</SCRIPT> AI is software.")),
+            "Upper-case script tags are live markup");
+        Assert.assertNotNull(SecurityFuzzer.problemWith(payload, reply(payload, "\uFF1Cscript\uFF1Ealert('x') AI is software.")),
+            "Fullwidth brackets fold to a script tag");
+        Assert.assertNotNull(SecurityFuzzer.problemWith("&lt;b&gt;hi", reply(payload, "<b>hi")),
+            "A reply identical to the decoded payload is not sanitised");
+    }
+
+    private static SecurityFuzzer.Outcome reply(String prompt, String text) {
+        return SecurityFuzzer.Outcome.of(new ChatResponse(prompt, text, 0, 0, 1, true));
+    }
+
+    // Earlier fuzz findings must stay fixed
+    @Test
+    public void testFuzzCorpusHandledSafely() {
+        List<SecurityFuzzer.Finding> corpus = SecurityFuzzer.loadCorpus(SecurityFuzzer.getCorpusPath()).stream()
+            .filter(finding -> getLanguage().equals(finding.getLanguage()))
+            .collect(Collectors.toList());
+        if (corpus.isEmpty()) {
+            System.out.println("No saved fuzz findings for " + getLanguage());
+            return;
+        }
+        if (ChatClient.isReplayMode()) {
+            throw new SkipException("Replaying the fuzz corpus needs a live backend");
+        }
+        
+        List<SecurityFuzzer.Finding> stillFailing = SecurityFuzzer.fromConfig(fuzzBackend()).replay(corpus);
+        System.out.println("Fuzz corpus (" + getLanguage() + "): " + (corpus.size() - stillFailing.size()) + "/" + corpus.size() + " fixed");
+        
+        Assert.assertTrue(stillFailing.isEmpty(), "Saved fuzz findings should be handled safely: " + stillFailing);
+    }
+    
+    private SecurityFuzzer.Backend fuzzBackend() {
+        return ChatClient.isHttpBackend()
+            ? SecurityFuzzer.http(ConfigManager.getProperty("chat.api.url", ""), getLanguage(),
+                ConfigManager.getIntProperty("fuzz.max.in.flight", 32))
+            : SecurityFuzzer.client(getChatClient());
+    }
 }
@@ -0,0 +1,143 @@
+package tests;
+
+import base.BrowserMetricsSampler;
+import base.ChatClient;
+import base.ChatResponse;
+import base.SeleniumChatClient;
+import base.TestBase;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import utils.ConfigManager;
+import utils.MultilingualHelper;
+import utils.Trend;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SoakTests extends TestBase {
+    // Run with: mvn test -Dtestng.suite=testng-soak.xml -Dsoak.enabled=true (add -Dstub.enabled=true for offline runs)
+    //
+    // One conversation of soak.turns prompts through the web UI. Every soak.sample.every
+    // turns the DOM size, JS heap and render time are sampled; the run fails when the
+    // growth rate (Theil-Sen slope over the turns) of memory, DOM, render time or reply
+    // latency exceeds its soak.max.* budget. Samples go to <metrics.dir>/soak-<language>.csv.
+
+    private static final double MB = 1024 * 1024;
+
+    // A disabled soak only skips, so it needs no browser
+    @Override
+    protected boolean requiresBrowser() {
+        return ConfigManager.getBooleanProperty("soak.enabled", false);
+    }
+
+    @Test
+    public void testLongConversationStaysBounded() {
+        if (!ConfigManager.getBooleanProperty("soak.enabled", false)) {
+            throw new SkipException("Set soak.enabled=true to drive one long conversation and watch its growth");
+        }
+        if (ChatClient.isReplayMode()) {
+            throw new SkipException("Soak runs measure the live page; the response store has no browser behind it");
+        }
+        int turns = ConfigManager.getIntProperty("soak.turns", 300);
+        int sampleEvery = Math.max(1, ConfigManager.getIntProperty("soak.sample.every", 10));
+        List<String> prompts = MultilingualHelper.getCommonQueries().stream()
+            .map(query -> MultilingualHelper.getPromptForLanguage(query, getLanguage()))
+            .collect(Collectors.toList());
+        Assert.assertFalse(prompts.isEmpty(), "Soak run needs at least one common query");
+
+        // Always the UI client: growth of the page is what is being measured
+        SeleniumChatClient client = new SeleniumChatClient(getDriver(), getWait(), getResponseWaiter());
+        BrowserMetricsSampler sampler = BrowserMetricsSampler.attach(getDriver(),
+            ConfigManager.getBooleanProperty("soak.gc.before.sample", true));
+
+        double[] turnIndex = new double[turns];
+        double[] latencyMs = new double[turns];
+        List<double[]> samples = new ArrayList<>(); // turn, dom nodes, heap MB, render ms per turn
+        int incomplete = 0;
+        BrowserMetricsSampler.Sample previous = sampler.sample();
+        int previousTurn = 0;
+        Path csv = Paths.get(ConfigManager.getProperty("metrics.dir", "test-reports/metrics"), "soak-" + getLanguage() + ".csv");
+        try {
+            Files.createDirectories(csv.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                writer.write("turn,latency_ms,dom_nodes,live_nodes,heap_used_bytes,heap_total_bytes,render_us,layout_count");
+                writer.newLine();
+                for (int turn = 1; turn <= turns; turn++) {
+                    ChatResponse response = client.send(prompts.get((turn - 1) % prompts.size()));
+                    turnIndex[turn - 1] = turn;
+                    latencyMs[turn - 1] = response.getTotalMillis();
+                    if (!response.isComplete()) {
+                        incomplete++;
+                    }
+                    if (turn % sampleEvery != 0 && turn != turns) {
+                        continue;
+                    }
+                    BrowserMetricsSampler.Sample sample = sampler.sample();
+                    // Render time is cumulative, so the interval's share per turn shows whether each turn costs more
+                    double renderPerTurn = sample.getRenderMicros() < 0 || previous.getRenderMicros() < 0 ? -1
+                        : (sample.getRenderMicros() - previous.getRenderMicros()) / 1000.0 / (turn - previousTurn);
+                    samples.add(new double[]{turn, sample.getDomNodes(), sample.getHeapUsedBytes() / MB, renderPerTurn});
+                    writer.write(turn + "," + response.getTotalMillis() + "," + sample.getDomNodes() + "," + sample.getLiveNodes()
+                        + "," + sample.getHeapUsedBytes() + "," + sample.getHeapTotalBytes() + "," + sample.getRenderMicros()
+                        + "," + sample.getLayoutCount());
+                    writer.newLine();
+                    writer.flush();
+                    System.out.println(String.format("Soak (%s) turn %d/%d: %d ms, %d DOM nodes, %.1f MB heap, %.2f ms render/turn",
+                        getLanguage(), turn, turns, response.getTotalMillis(), sample.getDomNodes(),
+                        sample.getHeapUsedBytes() / MB, renderPerTurn));
+                    previous = sample;
+                    previousTurn = turn;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write soak samples to " + csv, e);
+        }
+
+        double[] sampleTurns = column(samples, 0);
+        double domPerTurn = Trend.slope(sampleTurns, column(samples, 1));
+        double heapMbPer100 = samples.get(0)[2] < 0 ? Double.NaN : Trend.slope(sampleTurns, column(samples, 2)) * 100;
+        // Render time needs CDP; intervals without it read -1 and are left out
+        List<double[]> rendered = samples.stream().filter(s -> s[3] >= 0).collect(Collectors.toList());
+        double renderMsPer100 = rendered.size() < 2 ? Double.NaN : Trend.slope(column(rendered, 0), column(rendered, 3)) * 100;
+        double latencyMsPer100 = Trend.slope(turnIndex, latencyMs) * 100;
+        System.out.println(String.format("Soak (%s) growth: %.1f DOM nodes/turn, %.2f MB heap, %.2f ms render/turn and "
+                + "%.0f ms latency per 100 turns; %d of %d replies incomplete (samples in %s)",
+            getLanguage(), domPerTurn, heapMbPer100, renderMsPer100, latencyMsPer100, incomplete, turns, csv));
+
+        List<String> violations = new ArrayList<>();
+        checkSlope(violations, "DOM nodes per turn", domPerTurn, "soak.max.dom.nodes.per.turn", "500");
+        checkSlope(violations, "JS heap MB per 100 turns", heapMbPer100, "soak.max.heap.mb.per.100.turns", "20");
+        checkSlope(violations, "render ms/turn per 100 turns", renderMsPer100, "soak.max.render.ms.per.100.turns", "5");
+        checkSlope(violations, "latency ms per 100 turns", latencyMsPer100, "soak.max.latency.ms.per.100.turns", "1000");
+        double maxIncomplete = Double.parseDouble(ConfigManager.getProperty("soak.max.incomplete.rate", "0.02"));
+        if (incomplete > maxIncomplete * turns) {
+            violations.add(String.format("%d of %d replies incomplete (max rate %.3f)", incomplete, turns, maxIncomplete));
+        }
+        Assert.assertTrue(violations.isEmpty(), "Long conversation should not keep growing: " + String.join("; ", violations));
+    }
+
+    // Metrics the browser cannot report (NaN) are not judged
+    private static void checkSlope(List<String> violations, String label, double slope, String key, String defaultMax) {
+        double max = Double.parseDouble(ConfigManager.getProperty(key, defaultMax));
+        if (!Double.isNaN(slope) && slope > max) {
+            violations.add(String.format("%s grew at %.2f, above %s=%s", label, slope, key, ConfigManager.getProperty(key, defaultMax)));
+        }
+    }
+
+    private static double[] column(List<double[]> rows, int index) {
+        double[] column = new double[rows.size()];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = rows.get(i)[index];
+        }
+        return column;
+    }
+}
@@ -0,0 +1,196 @@
+package utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+public final class ArtifactPipeline {
+    // Writes failure artifacts (screenshots, page sources) off the test thread. Callers hand
+    // over bytes they already hold; a bounded queue feeds writer threads that compress and
+    // store them. When writers fall behind, a submit waits up to artifacts.offer.timeout.ms
+    // and then drops either the new artifact or the oldest queued one, so a burst of failures
+    // costs bounded memory and bounded test time instead of stalling the suite.
+
+    public enum DropPolicy { NEWEST, OLDEST }
+
+    private static ArtifactPipeline shared;
+
+    private final Path directory;
+    private final BlockingQueue<Artifact> queue;
+    private final long offerTimeoutMs;
+    private final DropPolicy dropPolicy;
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ArtifactPipeline(Path directory, int capacity, int writerThreads, long offerTimeoutMs, DropPolicy dropPolicy) {
+        this.directory = directory;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.dropPolicy = dropPolicy;
+        for (int i = 0; i < Math.max(1, writerThreads); i++) {
+            Thread writer = new Thread(this::drain, "artifact-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    public static synchronized ArtifactPipeline shared() {
+        if (shared == null) {
+            shared = new ArtifactPipeline(
+                Paths.get(ConfigManager.getProperty("artifacts.dir", "test-reports/artifacts")),
+                ConfigManager.getIntProperty("artifacts.queue.capacity", 16),
+                ConfigManager.getIntProperty("artifacts.writer.threads", 2),
+                ConfigManager.getIntProperty("artifacts.offer.timeout.ms", 500),
+                DropPolicy.valueOf(ConfigManager.getProperty("artifacts.drop.policy", "newest").toUpperCase(Locale.ROOT)));
+        }
+        return shared;
+    }
+
+    // Waits for queued artifacts to be written; later submits start a fresh pipeline
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.shutdown(Duration.ofSeconds(30));
+            System.out.println(shared.summary());
+            shared = null;
+        }
+    }
+
+    // The file the artifact will be written to, or null if it was dropped. The name is made
+    // unique, so the path can be linked into reports before the file exists.
+    public Path submit(String name, String extension, byte[] content, boolean compress) {
+        return submit(name, extension, content, compress, null);
+    }
+
+    // Under DropPolicy.OLDEST a path already handed out can still be evicted before it is
+    // written; onEvicted is then called with that path so whoever linked it can say so.
+    public Path submit(String name, String extension, byte[] content, boolean compress, Consumer<Path> onEvicted) {
+        if (closed) {
+            throw new IllegalStateException("Artifact pipeline is shut down");
+        }
+        String fileName = sanitize(name) + "-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet()
+            + "." + extension + (compress ? ".gz" : "");
+        Artifact artifact = new Artifact(directory.resolve(fileName), content, compress, onEvicted);
+        try {
+            if (queue.offer(artifact, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return artifact.file;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+            return null;
+        }
+        if (dropPolicy == DropPolicy.OLDEST) {
+            // Make room by discarding whatever has waited longest; racing submitters may need several tries
+            while (!queue.offer(artifact)) {
+                Artifact evicted = queue.poll();
+                if (evicted != null) {
+                    dropped.incrementAndGet();
+                    System.out.println("Artifact queue full, dropped " + evicted.file.getFileName());
+                    if (evicted.onEvicted != null) {
+                        evicted.onEvicted.accept(evicted.file);
+                    }
+                }
+            }
+            return artifact.file;
+        }
+        dropped.incrementAndGet();
+        System.out.println("Artifact queue full, dropped " + fileName);
+        return null;
+    }
+
+    public void shutdown(Duration timeout) {
+        closed = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Thread writer : writers) {
+            try {
+                writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getWrittenCount() {
+        return written.get();
+    }
+
+    public int getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public String summary() {
+        return String.format("Failure artifacts in %s: %d written, %d dropped, %d failed",
+            directory, written.get(), dropped.get(), failed.get());
+    }
+
+    private void drain() {
+        while (!closed || !queue.isEmpty()) {
+            Artifact artifact;
+            try {
+                artifact = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (artifact != null) {
+                write(artifact);
+            }
+        }
+    }
+
+    private void write(Artifact artifact) {
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream out = artifact.compress
+                    ? new GZIPOutputStream(Files.newOutputStream(artifact.file), 64 * 1024)
+                    : Files.newOutputStream(artifact.file)) {
+                out.write(artifact.content);
+            }
+            written.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.out.println("Failed to write artifact " + artifact.file + ": " + e.getMessage());
+        }
+    }
+
+    private static String sanitize(String name) {
+        String cleaned = name.replaceAll("[^A-Za-z0-9._-]+", "_");
+        return cleaned.length() > 120 ? cleaned.substring(0, 120) : cleaned;
+    }
+
+    private static final class Artifact {
+        final Path file;
+        final byte[] content;
+        final boolean compress;
+        final Consumer<Path> onEvicted;
+
+        Artifact(Path file, byte[] content, boolean compress, Consumer<Path> onEvicted) {
+            this.file = file;
+            this.content = content;
+            this.compress = compress;
+            this.onEvicted = onEvicted;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+
+public final class BloomFilter {
+    // Approximate set of strings in a fixed bit array: never a false "absent", and a false
+    // "present" at about the rate it was sized for. The fuzzer uses it to skip repeated
+    // payloads among many thousands of candidates without keeping their text.
+    // Not thread-safe; callers that share one synchronise around add.
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private int insertions;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int expected = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long size = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bits = new long[(int) Math.max(1, (size + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expected * ln2));
+    }
+
+    // True if the value was not in the set before (and is now)
+    public boolean add(String value) {
+        long hash = hash(value);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                added = true;
+            }
+        }
+        if (added) {
+            insertions++;
+        }
+        return added;
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getInsertions() {
+        return insertions;
+    }
+
+    // Expected false-positive rate at the current fill
+    public double getFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions / bitCount), hashCount);
+    }
+
+    // 64-bit FNV-1a over UTF-8, finished with a mixer so nearby strings spread out
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
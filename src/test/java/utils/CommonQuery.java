@@ -0,0 +1,69 @@
+package utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public final class CommonQuery {
+    private final String intent;
+    private final String en;
+    private final String ar;
+    private final List<String> expectedKeywords;
+    private final List<String> arExpectedKeywords;
+
+    @JsonCreator
+    public CommonQuery(@JsonProperty("intent") String intent,
+                       @JsonProperty("en") String en,
+                       @JsonProperty("ar") String ar,
+                       @JsonProperty("expectedKeywords") List<String> expectedKeywords,
+                       @JsonProperty("arExpectedKeywords") List<String> arExpectedKeywords) {
+        this.intent = intent;
+        this.en = en;
+        this.ar = ar;
+        this.expectedKeywords = normalizeKeywords(expectedKeywords);
+        this.arExpectedKeywords = normalizeKeywords(arExpectedKeywords);
+    }
+
+    public String getIntent() {
+        return intent;
+    }
+
+    public String getEn() {
+        return en;
+    }
+
+    public String getAr() {
+        return ar;
+    }
+
+    public String getPrompt(String language) {
+        return "en".equals(language) ? en : ar;
+    }
+
+    // Keywords are stored trimmed and lower-cased so matchers never have to re-normalise them
+    public List<String> getExpectedKeywords(String language) {
+        return "en".equals(language) ? expectedKeywords : arExpectedKeywords;
+    }
+
+    @Override
+    public String toString() {
+        return intent;
+    }
+
+    static List<String> normalizeKeywords(List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> normalized = new ArrayList<>(keywords.size());
+        for (String keyword : keywords) {
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                normalized.add(keyword.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return Collections.unmodifiableList(normalized);
+    }
+}
@@ -2,7 +2,9 @@ package utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 public class ConfigManager {
     private static final Properties properties = new Properties();
@@ -20,7 +22,42 @@ public class ConfigManager {
     }
     
     public static String getProperty(String key) {
-        return properties.getProperty(key);
+        // System properties (-Dkey=value) override config.properties
+        return System.getProperty(key, properties.getProperty(key));
+    }
+    
+    public static String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+    
+    public static int getIntProperty(String key, int defaultValue) {
+        String value = getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid integer for " + key + ": " + value, e);
+        }
+    }
+    
+    public static boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+    
+    // -D overrides of keys that config.properties defines, e.g. to pass on to forked JVMs
+    public static Map<String, String> getOverrides() {
+        Map<String, String> overrides = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = System.getProperty(key);
+            if (value != null) {
+                overrides.put(key, value);
+            }
+        }
+        return overrides;
     }
     
     public static String getAppUrl() {
@@ -31,6 +68,10 @@ public class ConfigManager {
         return Boolean.parseBoolean(getProperty("test.mobile"));
     }
     
+    public static int getSuiteThreadCount() {
+        return Math.max(1, getIntProperty("suite.thread.count", Runtime.getRuntime().availableProcessors()));
+    }
+    
     public static String getBrowser() {
         return getProperty("browser");
     }
@@ -0,0 +1,36 @@
+package utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public final class ConsistencyCase {
+    private final String intent;
+    private final String en;
+    private final String ar;
+
+    @JsonCreator
+    public ConsistencyCase(@JsonProperty("intent") String intent,
+                           @JsonProperty("en") String en,
+                           @JsonProperty("ar") String ar) {
+        this.intent = intent;
+        this.en = en;
+        this.ar = ar;
+    }
+
+    public String getIntent() {
+        return intent;
+    }
+
+    public String getEn() {
+        return en;
+    }
+
+    public String getAr() {
+        return ar;
+    }
+
+    @Override
+    public String toString() {
+        return intent;
+    }
+}
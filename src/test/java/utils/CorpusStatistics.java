@@ -0,0 +1,129 @@
+package utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public final class CorpusStatistics {
+    // Document frequencies over the prompt/response corpus, keyed by token hash.
+    // Immutable once built; the default instance is built once per JVM.
+
+    private final int documentCount;
+    private final double averageDocumentLength;
+    private final Map<Long, Integer> documentFrequency;
+
+    private CorpusStatistics(int documentCount, double averageDocumentLength, Map<Long, Integer> documentFrequency) {
+        this.documentCount = documentCount;
+        this.averageDocumentLength = averageDocumentLength;
+        this.documentFrequency = documentFrequency;
+    }
+
+    private static class Holder {
+        static final CorpusStatistics DEFAULT = buildDefault();
+    }
+
+    public static CorpusStatistics getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public double getAverageDocumentLength() {
+        return averageDocumentLength;
+    }
+
+    // BM25 idf with the +1 inside the log so common terms never go negative
+    public double idf(long tokenHash) {
+        int df = documentFrequency.getOrDefault(tokenHash, 0);
+        return Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Test data and corpus plus the given responses, for re-validating a store other than
+    // the default one without the default store's answers skewing the idf
+    public static CorpusStatistics forResponses(Collection<RecordedResponse> responses) {
+        Builder builder = withPrompts();
+        for (RecordedResponse response : responses) {
+            builder.addDocument(response.getPrompt());
+            builder.addDocument(response.getText());
+        }
+        return builder.build();
+    }
+
+    private static CorpusStatistics buildDefault() {
+        Builder builder = withPrompts();
+
+        // Recorded responses make the statistics reflect real answers, not just prompts
+        Path store = ResponseStore.getDefaultDirectory().resolve(ResponseStore.FILE_NAME);
+        if (Files.exists(store)) {
+            ResponseStore.shared().forEach(response -> {
+                builder.addDocument(response.getPrompt());
+                builder.addDocument(response.getText());
+            });
+        }
+        return builder.build();
+    }
+
+    private static Builder withPrompts() {
+        Builder builder = builder();
+        TestData testData = TestDataLoader.loadFullTestData();
+        for (CommonQuery query : testData.getCommonQueries()) {
+            builder.addDocument(query.getEn());
+            builder.addDocument(query.getAr());
+        }
+        for (ConsistencyCase consistencyCase : testData.getMultilingualConsistency()) {
+            builder.addDocument(consistencyCase.getEn());
+            builder.addDocument(consistencyCase.getAr());
+        }
+
+        String corpusPath = ConfigManager.getProperty("relevance.corpus.path", "");
+        if (!corpusPath.isEmpty() && Files.exists(Paths.get(corpusPath))) {
+            try (Stream<CommonQuery> corpus = TestDataLoader.streamCorpus(Paths.get(corpusPath))) {
+                corpus.forEach(query -> {
+                    builder.addDocument(query.getEn());
+                    builder.addDocument(query.getAr());
+                });
+            }
+        }
+        return builder;
+    }
+
+    public static final class Builder {
+        private final Map<Long, Integer> documentFrequency = new HashMap<>();
+        private final Set<Long> seenInDocument = new HashSet<>();
+        private int documentCount;
+        private long totalLength;
+
+        public Builder addDocument(String text) {
+            if (text == null || text.isEmpty()) {
+                return this;
+            }
+            seenInDocument.clear();
+            totalLength += Tokenizer.forEachToken(text, seenInDocument::add);
+            for (Long token : seenInDocument) {
+                documentFrequency.merge(token, 1, Integer::sum);
+            }
+            documentCount++;
+            return this;
+        }
+
+        public CorpusStatistics build() {
+            // Prompt-only corpora are much shorter than responses; keep length
+            // normalisation from over-penalising normal-sized answers
+            double minAverage = ConfigManager.getIntProperty("relevance.min.avg.doc.length", 100);
+            double average = documentCount == 0 ? minAverage : Math.max(minAverage, totalLength / (double) documentCount);
+            return new CorpusStatistics(documentCount, average, new HashMap<>(documentFrequency));
+        }
+    }
+}
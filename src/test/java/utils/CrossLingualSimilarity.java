@@ -0,0 +1,367 @@
+package utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+public final class CrossLingualSimilarity {
+    // Agreement between an English and an Arabic answer to the same question, offline.
+    // Both scripts are reduced to one phonetic consonant skeleton (Arabic is transliterated
+    // first, so بايثون and "python" both become BON), and each word's skeleton n-grams plus
+    // every number are hashed into a fixed-size float vector. Loanwords, names, formulas and
+    // figures are what a faithful translation keeps, so they are what the vectors share.
+    // Vectors are unit length and cached per text, so a comparison is one dot product.
+
+    private static final int MIN_SKELETON_LENGTH = 3;
+    private static final int NGRAM = 4;
+    // A whole loanword agreeing outweighs a partial n-gram overlap
+    private static final float WORD_WEIGHT = 2f;
+    private static final float NUMBER_WEIGHT = 2f;
+    // Vectors are dimensions * 4 bytes (4 KB at the default 1024), so the cache is bounded by size
+    private static final long MAX_CACHED_BYTES = 16L * 1024 * 1024;
+    // Queries scored together against each candidate, so every candidate vector loaded
+    // from memory is reused this many times
+    private static final int QUERY_BLOCK = 8;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Latin spelling of U+0621..U+064A; null entries are dropped (hamza carriers, ain, tatweel)
+    private static final String[] ARABIC_TO_LATIN = new String[0x064A - 0x0621 + 1];
+
+    static {
+        String[][] table = {
+            {"ا", "a"}, {"أ", "a"}, {"إ", "i"}, {"آ", "a"}, {"ب", "b"}, {"ت", "t"}, {"ث", "th"},
+            {"ج", "j"}, {"ح", "h"}, {"خ", "kh"}, {"د", "d"}, {"ذ", "z"}, {"ر", "r"}, {"ز", "z"},
+            {"س", "s"}, {"ش", "sh"}, {"ص", "s"}, {"ض", "d"}, {"ط", "t"}, {"ظ", "z"}, {"غ", "g"},
+            {"ف", "f"}, {"ق", "q"}, {"ك", "k"}, {"ل", "l"}, {"م", "m"}, {"ن", "n"}, {"ه", "h"},
+            {"ة", "h"}, {"و", "w"}, {"ي", "y"}, {"ى", "a"}
+        };
+        for (String[] entry : table) {
+            ARABIC_TO_LATIN[entry[0].charAt(0) - 0x0621] = entry[1];
+        }
+    }
+
+    private static final String[] ARABIC_PREFIXES = {"وال", "بال", "كال", "فال", "لل", "ال"};
+
+    private static final CrossLingualSimilarity DEFAULT = new CrossLingualSimilarity(
+        ConfigManager.getIntProperty("consistency.vector.dimensions", 1024),
+        Double.parseDouble(ConfigManager.getProperty("consistency.min.similarity", "0.1")));
+
+    private final int dimensions;
+    private final double threshold;
+    private final int maxCachedVectors;
+    private final Map<String, float[]> vectors = new ConcurrentHashMap<>();
+
+    public CrossLingualSimilarity(int dimensions, double threshold) {
+        if (dimensions < 16 || Integer.bitCount(dimensions) != 1) {
+            throw new IllegalArgumentException("Vector dimensions must be a power of two >= 16, was " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.threshold = threshold;
+        this.maxCachedVectors = (int) Math.max(1, MAX_CACHED_BYTES / (dimensions * (long) Float.BYTES));
+    }
+
+    public static CrossLingualSimilarity getDefault() {
+        return DEFAULT;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    // Only loanwords, names and numbers can match across the two scripts, so a faithful
+    // answer in plain words (e.g. on renewing a residence visa) can score near zero. Until
+    // consistency.min.similarity is calibrated on recorded answer pairs (ReplayValidator
+    // reports one) the score is logged, not asserted.
+    public static boolean isEnforced() {
+        return ConfigManager.getBooleanProperty("consistency.enforce", false);
+    }
+
+    // Cosine of the two answers' vectors, clamped to [0, 1]
+    public double similarity(String english, String arabic) {
+        return Math.max(0, dot(vector(english), 0, vector(arabic), 0, dimensions));
+    }
+
+    public boolean isConsistent(String english, String arabic) {
+        return similarity(english, arabic) >= threshold;
+    }
+
+    // Unit-length vector of the text (all zeros when nothing in it survives), cached per text
+    public float[] vector(String text) {
+        float[] vector = vectors.get(text);
+        if (vector == null) {
+            if (vectors.size() >= maxCachedVectors) {
+                vectors.clear();
+            }
+            vector = vectors.computeIfAbsent(text, this::embed);
+        }
+        return vector;
+    }
+
+    // All-pairs search: for every query, the candidate it agrees with most. Vectors are
+    // packed into flat arrays and blocks of queries are scored on every core; memory
+    // stays linear in the input, so it scales to whole recorded corpora. The packed arrays
+    // are the only copy: texts are embedded straight into them, bypassing the cache.
+    public Matches bestMatches(List<String> queries, List<String> candidates) {
+        float[] packedQueries = pack(queries);
+        float[] packedCandidates = pack(candidates);
+        int queryCount = queries.size();
+        int candidateCount = candidates.size();
+        int[] bestIndex = new int[queryCount];
+        float[] bestScore = new float[queryCount];
+
+        int blocks = (queryCount + QUERY_BLOCK - 1) / QUERY_BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * QUERY_BLOCK;
+            int to = Math.min(queryCount, from + QUERY_BLOCK);
+            for (int q = from; q < to; q++) {
+                bestIndex[q] = -1;
+            }
+            for (int c = 0; c < candidateCount; c++) {
+                int candidateOffset = c * dimensions;
+                for (int q = from; q < to; q++) {
+                    float score = dot(packedQueries, q * dimensions, packedCandidates, candidateOffset, dimensions);
+                    if (bestIndex[q] < 0 || score > bestScore[q]) {
+                        bestScore[q] = score;
+                        bestIndex[q] = c;
+                    }
+                }
+            }
+        });
+        for (int q = 0; q < queryCount; q++) {
+            bestScore[q] = Math.max(0, bestScore[q]);
+        }
+        return new Matches(bestIndex, bestScore);
+    }
+
+    private float[] pack(List<String> texts) {
+        float[] packed = new float[texts.size() * dimensions];
+        IntStream.range(0, texts.size()).parallel()
+            .forEach(i -> {
+                float[] cached = vectors.get(texts.get(i));
+                System.arraycopy(cached != null ? cached : embed(texts.get(i)), 0, packed, i * dimensions, dimensions);
+            });
+        return packed;
+    }
+
+    // Four independent sums keep the loop free of one long floating-point dependency chain
+    private static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < length; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        if (text == null) {
+            return vector;
+        }
+        char[] word = new char[64];
+        StringBuilder latin = new StringBuilder();
+        char[] skeleton = new char[130];
+        int wordLength = 0;
+        long number = FNV_OFFSET;
+        int digits = 0;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? TextNormalizer.fold(text.charAt(i)) : ' ';
+            if (c == TextNormalizer.DROPPED) {
+                // Harakat, tatweel and invisible marks sit inside words; skipping them keeps the word whole
+                continue;
+            }
+            int digit = Character.isDigit(c) ? Character.digit(c, 10) : -1;
+            if (digit >= 0) {
+                // Leading zeros carry no value, so "07" and "٧" agree
+                if (digits > 0 || digit != 0) {
+                    number = (number ^ ('0' + digit)) * FNV_PRIME;
+                    digits++;
+                }
+                if (wordLength > 0) {
+                    addWord(vector, word, wordLength, latin, skeleton);
+                    wordLength = 0;
+                }
+                continue;
+            }
+            if ((c == ',' || c == '٬') && digits > 0 && i + 1 < n && Character.isDigit(text.charAt(i + 1))) {
+                // Thousands separators, Latin and Arabic
+                continue;
+            }
+            if (digits > 0) {
+                add(vector, (number ^ '#') * FNV_PRIME, NUMBER_WEIGHT);
+                number = FNV_OFFSET;
+                digits = 0;
+            }
+            if (Character.isLetter(c)) {
+                if (wordLength < word.length) {
+                    word[wordLength++] = c;
+                }
+            } else if (wordLength > 0) {
+                addWord(vector, word, wordLength, latin, skeleton);
+                wordLength = 0;
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private void addWord(float[] vector, char[] word, int length, StringBuilder latin, char[] skeleton) {
+        latin.setLength(0);
+        if (isArabicLetter(word[0])) {
+            int start = stripArabicPrefix(word, length);
+            for (int i = start; i < length; i++) {
+                char c = word[i];
+                if (c >= 0x0621 && c <= 0x064A && ARABIC_TO_LATIN[c - 0x0621] != null) {
+                    latin.append(ARABIC_TO_LATIN[c - 0x0621]);
+                }
+            }
+        } else {
+            // Arabic has no plural -s, so "qubits" should meet كيوبت as "qubit"
+            boolean plural = length > 4 && word[length - 1] == 's' && word[length - 2] != 's';
+            latin.append(word, 0, plural ? length - 1 : length);
+        }
+
+        int skeletonLength = 1;
+        skeleton[0] = '^';
+        for (int i = 0, n = latin.length(); i < n && skeletonLength < skeleton.length - 2; i++) {
+            char c = latin.charAt(i);
+            char next = i + 1 < n ? latin.charAt(i + 1) : ' ';
+            char code;
+            if (next == 'h' && (c == 't' || c == 's' || c == 'k' || c == 'c' || c == 'p' || c == 'g')) {
+                // th, sh, kh, ch, ph; an English gh is usually silent
+                code = c == 't' ? 'O' : c == 's' ? 'X' : c == 'p' ? 'F' : c == 'g' ? 0 : 'K';
+                i++;
+            } else if (c == 'x') {
+                skeleton[skeletonLength++] = 'K';
+                code = 'S';
+            } else {
+                code = consonantClass(c, next);
+            }
+            if (code != 0 && skeleton[skeletonLength - 1] != code) {
+                skeleton[skeletonLength++] = code;
+            }
+        }
+        if (skeletonLength - 1 < MIN_SKELETON_LENGTH) {
+            return;
+        }
+        skeleton[skeletonLength++] = '$';
+
+        // The whole skeleton, then every n-gram of it with word boundaries
+        add(vector, hash(skeleton, 0, skeletonLength), WORD_WEIGHT);
+        for (int i = 0; i + NGRAM <= skeletonLength; i++) {
+            add(vector, hash(skeleton, i, NGRAM), 1f);
+        }
+    }
+
+    // Sounds that survive transliteration in both directions; vowels, h, w and y do not
+    private static char consonantClass(char c, char next) {
+        switch (c) {
+            case 'b': case 'p':
+                return 'B';
+            case 'f': case 'v':
+                return 'F';
+            case 't': case 'd':
+                return 'T';
+            case 's': case 'z':
+                return 'S';
+            case 'c':
+                return next == 'e' || next == 'i' || next == 'y' ? 'S' : 'K';
+            case 'k': case 'q':
+                return 'K';
+            case 'g': case 'j':
+                return 'J';
+            case 'l':
+                return 'L';
+            case 'm':
+                return 'M';
+            case 'n':
+                return 'N';
+            case 'r':
+                return 'R';
+            default:
+                return 0;
+        }
+    }
+
+    private static int stripArabicPrefix(char[] word, int length) {
+        for (String prefix : ARABIC_PREFIXES) {
+            int p = prefix.length();
+            if (length - p < 2) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < p && matches; i++) {
+                matches = word[i] == prefix.charAt(i);
+            }
+            if (matches) {
+                return p;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isArabicLetter(char c) {
+        return c >= 0x0600 && c <= 0x06FF;
+    }
+
+    private static long hash(char[] chars, int offset, int length) {
+        long hash = FNV_OFFSET;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ chars[i]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // Signed hashing: colliding features cancel on average instead of inflating every score
+    private void add(float[] vector, long hash, float weight) {
+        long mixed = hash ^ (hash >>> 29);
+        int index = (int) mixed & (dimensions - 1);
+        vector[index] += (mixed & (1L << 40)) == 0 ? weight : -weight;
+    }
+
+    private static void normalize(float[] vector) {
+        double sumOfSquares = 0;
+        for (float value : vector) {
+            sumOfSquares += value * value;
+        }
+        if (sumOfSquares > 0) {
+            float scale = (float) (1 / Math.sqrt(sumOfSquares));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+    }
+
+    public static final class Matches {
+        private final int[] bestIndex;
+        private final float[] bestScore;
+
+        Matches(int[] bestIndex, float[] bestScore) {
+            this.bestIndex = bestIndex;
+            this.bestScore = bestScore;
+        }
+
+        public int size() {
+            return bestIndex.length;
+        }
+
+        // -1 when there were no candidates
+        public int getBestIndex(int query) {
+            return bestIndex[query];
+        }
+
+        public float getBestScore(int query) {
+            return bestScore[query];
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class KeywordMatcher {
+    // Aho-Corasick automaton over TextNormalizer-folded chars. Built once per keyword set and
+    // immutable afterwards, so one instance can scan any number of texts on any thread.
+    // Text is folded char by char while scanning (dropped marks skipped, runs of spaces
+    // collapsed), so no normalised copy is allocated and تـعـلُّم still matches تعلم.
+
+    private static final int ROOT = 0;
+    private static final int NO_STATE = -1;
+
+    private final String[] keywords;
+    // Lengths in folded chars, which can be shorter than the keyword as written
+    private final int[] keywordLengths;
+    private final int maxKeywordLength;
+
+    // Goto function as an open-addressing hash table keyed by (state << 16 | char)
+    private final long[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int edgeMask;
+
+    private final int[] failure;
+    // Keyword ending exactly at a state (or -1), and the nearest failure-chain state that has one
+    private final int[] terminal;
+    private final int[] dictionaryLink;
+
+    private KeywordMatcher(String[] keywords, int[] keywordLengths, long[] edgeKeys, int[] edgeTargets,
+                           int[] failure, int[] terminal, int[] dictionaryLink) {
+        this.keywords = keywords;
+        this.keywordLengths = keywordLengths;
+        this.maxKeywordLength = Math.max(1, Arrays.stream(keywordLengths).max().orElse(1));
+        this.edgeKeys = edgeKeys;
+        this.edgeTargets = edgeTargets;
+        this.edgeMask = edgeKeys.length - 1;
+        this.failure = failure;
+        this.terminal = terminal;
+        this.dictionaryLink = dictionaryLink;
+    }
+
+    public static KeywordMatcher compile(Collection<String> keywords) {
+        return new Builder(keywords).build();
+    }
+
+    public static KeywordMatcher compile(String... keywords) {
+        return compile(Arrays.asList(keywords));
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    public String getKeyword(int index) {
+        return keywords[index];
+    }
+
+    public boolean matchesAny(CharSequence text) {
+        if (keywords.length == 0 || text == null) {
+            return false;
+        }
+        int state = ROOT;
+        char previous = ' ';
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = fold(text.charAt(i));
+            if (skip(c, previous)) {
+                continue;
+            }
+            previous = c;
+            state = next(state, c);
+            if (terminal[state] >= 0 || dictionaryLink[state] != NO_STATE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Every occurrence of every keyword, in order of end position; overlapping matches included
+    public List<Match> findAll(CharSequence text) {
+        if (keywords.length == 0 || text == null) {
+            return Collections.emptyList();
+        }
+        List<Match> matches = new ArrayList<>();
+        // Text offsets of the last folded chars, to map a match back past skipped marks
+        int[] positions = new int[maxKeywordLength];
+        int emitted = 0;
+        int state = ROOT;
+        char previous = ' ';
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = fold(text.charAt(i));
+            if (skip(c, previous)) {
+                continue;
+            }
+            previous = c;
+            positions[emitted++ % positions.length] = i;
+            state = next(state, c);
+            for (int s = terminal[state] >= 0 ? state : dictionaryLink[state]; s != NO_STATE; s = dictionaryLink[s]) {
+                int keyword = terminal[s];
+                int start = positions[(emitted - keywordLengths[keyword]) % positions.length];
+                matches.add(new Match(keywords[keyword], keyword, start, i + 1));
+            }
+        }
+        return matches;
+    }
+
+    // Which keywords occur at least once; stops early once all of them have been seen
+    public BitSet findMatchedKeywords(CharSequence text) {
+        BitSet found = new BitSet(keywords.length);
+        if (keywords.length == 0 || text == null) {
+            return found;
+        }
+        int state = ROOT;
+        int remaining = keywords.length;
+        char previous = ' ';
+        for (int i = 0, n = text.length(); i < n && remaining > 0; i++) {
+            char c = fold(text.charAt(i));
+            if (skip(c, previous)) {
+                continue;
+            }
+            previous = c;
+            state = next(state, c);
+            for (int s = terminal[state] >= 0 ? state : dictionaryLink[state]; s != NO_STATE; s = dictionaryLink[s]) {
+                if (!found.get(terminal[s])) {
+                    found.set(terminal[s]);
+                    remaining--;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Incremental scan for text that arrives in pieces; a keyword split across two
+    // chunks is still found because the automaton state carries over
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int target = edge(state, c);
+            if (target != NO_STATE) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    private int edge(int state, char c) {
+        long key = edgeKey(state, c);
+        for (int slot = mix(key) & edgeMask; ; slot = (slot + 1) & edgeMask) {
+            long existing = edgeKeys[slot];
+            if (existing == key) {
+                return edgeTargets[slot];
+            }
+            if (existing == -1L) {
+                return NO_STATE;
+            }
+        }
+    }
+
+    static char fold(char c) {
+        return TextNormalizer.fold(c);
+    }
+
+    private static boolean skip(char folded, char previous) {
+        return folded == TextNormalizer.DROPPED || (folded == ' ' && previous == ' ');
+    }
+
+    private static long edgeKey(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public static final class Match {
+        private final String keyword;
+        private final int keywordIndex;
+        private final int start;
+        private final int end;
+
+        Match(String keyword, int keywordIndex, int start, int end) {
+            this.keyword = keyword;
+            this.keywordIndex = keywordIndex;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public int getKeywordIndex() {
+            return keywordIndex;
+        }
+
+        // Offsets into the scanned text, end exclusive
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return keyword + "@" + start;
+        }
+    }
+
+    public final class Scanner {
+        private final BitSet found = new BitSet(keywords.length);
+        private int state = ROOT;
+        private int remaining = keywords.length;
+        private char previous = ' ';
+
+        private Scanner() {
+        }
+
+        public void accept(char c) {
+            if (remaining == 0) {
+                return; // Every keyword already seen
+            }
+            char folded = fold(c);
+            if (skip(folded, previous)) {
+                return;
+            }
+            previous = folded;
+            state = next(state, folded);
+            for (int s = terminal[state] >= 0 ? state : dictionaryLink[state]; s != NO_STATE; s = dictionaryLink[s]) {
+                if (!found.get(terminal[s])) {
+                    found.set(terminal[s]);
+                    remaining--;
+                }
+            }
+        }
+
+        public void accept(CharSequence chunk) {
+            for (int i = 0, n = chunk.length(); i < n && remaining > 0; i++) {
+                accept(chunk.charAt(i));
+            }
+        }
+
+        public boolean hasMatch() {
+            return remaining < keywords.length;
+        }
+
+        public BitSet getMatchedKeywords() {
+            return (BitSet) found.clone();
+        }
+    }
+
+    private static final class Builder {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> keywordLengths = new ArrayList<>();
+        // Trie under construction: per-state parallel lists of (char, child)
+        private final List<StringBuilder> childChars = new ArrayList<>();
+        private final List<List<Integer>> childStates = new ArrayList<>();
+        private final List<Integer> terminal = new ArrayList<>();
+
+        Builder(Collection<String> source) {
+            newState();
+            Set<String> seen = new HashSet<>();
+            for (String keyword : source) {
+                if (keyword == null || keyword.isEmpty() || !seen.add(keyword)) {
+                    continue;
+                }
+                String folded = TextNormalizer.normalizeToString(keyword);
+                if (folded.isEmpty()) {
+                    continue; // Nothing but marks or spaces
+                }
+                int index = keywords.size();
+                keywords.add(keyword);
+                keywordLengths.add(folded.length());
+                int state = ROOT;
+                for (int i = 0; i < folded.length(); i++) {
+                    state = childOrCreate(state, folded.charAt(i));
+                }
+                // Keywords that fold to the same text share a state; keep the first
+                if (terminal.get(state) < 0) {
+                    terminal.set(state, index);
+                }
+            }
+        }
+
+        KeywordMatcher build() {
+            int states = terminal.size();
+            int edges = states - 1;
+            int capacity = Integer.highestOneBit(Math.max(4, edges * 2)) << 1;
+            long[] edgeKeys = new long[capacity];
+            int[] edgeTargets = new int[capacity];
+            Arrays.fill(edgeKeys, -1L);
+            int mask = capacity - 1;
+
+            int[] failure = new int[states];
+            int[] terminalArray = new int[states];
+            int[] dictionaryLink = new int[states];
+            Arrays.fill(dictionaryLink, NO_STATE);
+            for (int s = 0; s < states; s++) {
+                terminalArray[s] = terminal.get(s);
+            }
+
+            // Breadth-first so every failure target is finished before its dependents
+            int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = ROOT;
+            while (head < tail) {
+                int state = queue[head++];
+                StringBuilder chars = childChars.get(state);
+                List<Integer> children = childStates.get(state);
+                for (int i = 0; i < chars.length(); i++) {
+                    char c = chars.charAt(i);
+                    int child = children.get(i);
+                    long key = edgeKey(state, c);
+                    int slot = mix(key) & mask;
+                    while (edgeKeys[slot] != -1L) {
+                        slot = (slot + 1) & mask;
+                    }
+                    edgeKeys[slot] = key;
+                    edgeTargets[slot] = child;
+
+                    int fail = ROOT;
+                    if (state != ROOT) {
+                        int f = failure[state];
+                        while (true) {
+                            int target = childOf(f, c);
+                            if (target != NO_STATE) {
+                                fail = target;
+                                break;
+                            }
+                            if (f == ROOT) {
+                                break;
+                            }
+                            f = failure[f];
+                        }
+                    }
+                    failure[child] = fail;
+                    dictionaryLink[child] = terminalArray[fail] >= 0 ? fail : dictionaryLink[fail];
+                    queue[tail++] = child;
+                }
+            }
+
+            int[] lengths = new int[keywordLengths.size()];
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = keywordLengths.get(i);
+            }
+            return new KeywordMatcher(keywords.toArray(new String[0]), lengths, edgeKeys, edgeTargets,
+                failure, terminalArray, dictionaryLink);
+        }
+
+        private int newState() {
+            childChars.add(new StringBuilder());
+            childStates.add(new ArrayList<>());
+            terminal.add(-1);
+            return terminal.size() - 1;
+        }
+
+        private int childOf(int state, char c) {
+            int i = childChars.get(state).indexOf(String.valueOf(c));
+            return i < 0 ? NO_STATE : childStates.get(state).get(i);
+        }
+
+        private int childOrCreate(int state, char c) {
+            int child = childOf(state, c);
+            if (child == NO_STATE) {
+                child = newState();
+                childChars.get(state).append(c);
+                childStates.get(state).add(child);
+            }
+            return child;
+        }
+    }
+}
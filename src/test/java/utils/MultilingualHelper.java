@@ -1,7 +1,6 @@
 package utils;
 
 import java.util.List;
-import java.util.Map;
 
 public class MultilingualHelper {
     
@@ -13,20 +12,15 @@ public class MultilingualHelper {
         return isRTL(language) ? "rtl" : "ltr";
     }
     
-    @SuppressWarnings("unchecked")
-    public static List<Map<String, Object>> getCommonQueries() {
-        Map<String, Object> testPrompts = TestDataLoader.getTestPrompts();
-        return (List<Map<String, Object>>) testPrompts.get("commonQueries");
+    public static List<CommonQuery> getCommonQueries() {
+        return TestDataLoader.loadTestData().getCommonQueries();
     }
     
-    public static String getPromptForLanguage(Map<String, Object> query, String language) {
-        return language.equals("en") ? 
-            (String) query.get("en") : (String) query.get("ar");
+    public static String getPromptForLanguage(CommonQuery query, String language) {
+        return query.getPrompt(language);
     }
     
-    @SuppressWarnings("unchecked")
-    public static List<String> getExpectedKeywords(Map<String, Object> query, String language) {
-        String key = language.equals("en") ? "expectedKeywords" : "arExpectedKeywords";
-        return (List<String>) query.get(key);
+    public static List<String> getExpectedKeywords(CommonQuery query, String language) {
+        return query.getExpectedKeywords(language);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,249 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+public final class PhaseMetrics {
+    // Wall-clock time per test phase, labelled with the test and language that the
+    // current thread is working for. Labels are bound by PhaseMetricsListener; on
+    // threads without labels (load runs, batch re-validation) timers are no-ops, so
+    // hot paths can be instrumented without flooding the registry.
+
+    public static final String DRIVER_START = "driver_start";
+    public static final String PAGE_LOAD = "page_load";
+    public static final String INPUT = "input";
+    public static final String THROTTLE = "throttle";
+    public static final String SEND = "send";
+    public static final String WAIT_RESPONSE = "wait_response";
+    public static final String EXTRACTION = "extraction";
+    public static final String VALIDATION = "validation";
+    // Waits that ran past the p99 learned for their selector; _count is how many
+    public static final String SLOW_WAIT = "slow_wait";
+
+    private static final String METRIC = "uask_phase_duration_seconds";
+    // Prometheus histogram buckets in seconds, spanning a DOM read to a slow streamed answer
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ThreadLocal<Labels> currentLabels = new ThreadLocal<>();
+    private static final Map<Series, SeriesStats> series = new ConcurrentHashMap<>();
+    private static final Queue<ObjectNode> pendingLines = new ConcurrentLinkedQueue<>();
+    private static final String RUN_ID = Instant.now().toString();
+    private static final Timer NO_OP = () -> { };
+
+    private PhaseMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ConfigManager.getBooleanProperty("metrics.enabled", true);
+    }
+
+    public static void bind(String test, String language) {
+        currentLabels.set(new Labels(test, language == null ? "" : language));
+    }
+
+    public static void unbind() {
+        currentLabels.remove();
+    }
+
+    // try (PhaseMetrics.Timer ignored = PhaseMetrics.time(PhaseMetrics.INPUT)) { ... }
+    public static Timer time(String phase) {
+        Labels labels = currentLabels.get();
+        if (labels == null) {
+            return NO_OP;
+        }
+        long start = System.nanoTime();
+        boolean[] closed = new boolean[1];
+        // Closing twice records once, so a timer can be stopped early on one path
+        return () -> {
+            if (!closed[0]) {
+                closed[0] = true;
+                record(labels, phase, System.nanoTime() - start);
+            }
+        };
+    }
+
+    public static <T> T measure(String phase, Supplier<T> action) {
+        try (Timer ignored = time(phase)) {
+            return action.get();
+        }
+    }
+
+    // For durations measured elsewhere; a no-op on threads without labels, like time()
+    public static void observe(String phase, long nanos) {
+        Labels labels = currentLabels.get();
+        if (labels != null) {
+            record(labels, phase, nanos);
+        }
+    }
+
+    private static void record(Labels labels, String phase, long nanos) {
+        series.computeIfAbsent(new Series(phase, labels), key -> new SeriesStats()).add(nanos / 1e9);
+        ObjectNode line = mapper.createObjectNode();
+        line.put("runId", RUN_ID);
+        line.put("timestamp", System.currentTimeMillis());
+        line.put("test", labels.test);
+        line.put("language", labels.language);
+        line.put("phase", phase);
+        line.put("millis", Math.round(nanos / 1e4) / 100.0);
+        pendingLines.add(line);
+    }
+
+    public static Path getOutputDirectory() {
+        return Paths.get(ConfigManager.getProperty("metrics.dir", "test-reports/metrics"));
+    }
+
+    // Rewrites the Prometheus snapshot and appends observations not yet written to the JSONL log
+    public static synchronized void export() {
+        Path directory = getOutputDirectory();
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("phase-timings.prom"), toPrometheus(), StandardCharsets.UTF_8);
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("phase-timings.jsonl"),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                ObjectNode line;
+                while ((line = pendingLines.poll()) != null) {
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export phase metrics to " + directory, e);
+        }
+    }
+
+    // Totals per series so far; RunHistory keeps these for comparison with later runs
+    public static void forEachSeries(SeriesVisitor visitor) {
+        for (Map.Entry<Series, SeriesStats> entry : series.entrySet()) {
+            SeriesStats stats = entry.getValue().snapshot();
+            Series key = entry.getKey();
+            visitor.visit(key.test, key.language, key.phase, stats.count, stats.sum);
+        }
+    }
+
+    static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP ").append(METRIC).append(" Wall-clock time spent in each test phase.\n");
+        out.append("# TYPE ").append(METRIC).append(" histogram\n");
+        List<Map.Entry<Series, SeriesStats>> entries = new ArrayList<>(series.entrySet());
+        entries.sort((a, b) -> a.getKey().sortKey().compareTo(b.getKey().sortKey()));
+        for (Map.Entry<Series, SeriesStats> entry : entries) {
+            String labels = entry.getKey().toLabels();
+            SeriesStats stats = entry.getValue().snapshot();
+            for (int i = 0; i < BUCKETS.length; i++) {
+                out.append(METRIC).append("_bucket{").append(labels).append(",le=\"")
+                    .append(formatBound(BUCKETS[i])).append("\"} ").append(stats.buckets[i]).append('\n');
+            }
+            out.append(METRIC).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(stats.count).append('\n');
+            out.append(METRIC).append("_sum{").append(labels).append("} ")
+                .append(String.format(Locale.ROOT, "%.6f", stats.sum)).append('\n');
+            out.append(METRIC).append("_count{").append(labels).append("} ").append(stats.count).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String formatBound(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @FunctionalInterface
+    public interface Timer extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @FunctionalInterface
+    public interface SeriesVisitor {
+        void visit(String test, String language, String phase, long count, double sumSeconds);
+    }
+
+    private static final class Labels {
+        final String test;
+        final String language;
+
+        Labels(String test, String language) {
+            this.test = test;
+            this.language = language;
+        }
+    }
+
+    private static final class Series {
+        final String phase;
+        final String test;
+        final String language;
+
+        Series(String phase, Labels labels) {
+            this.phase = phase;
+            this.test = labels.test;
+            this.language = labels.language;
+        }
+
+        String sortKey() {
+            return test + '\0' + language + '\0' + phase;
+        }
+
+        String toLabels() {
+            return "test=\"" + escape(test) + "\",language=\"" + escape(language) + "\",phase=\"" + escape(phase) + "\"";
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Series)) {
+                return false;
+            }
+            Series that = (Series) other;
+            return phase.equals(that.phase) && test.equals(that.test) && language.equals(that.language);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(phase, test, language);
+        }
+    }
+
+    private static final class SeriesStats {
+        // Cumulative counts, as Prometheus expects for le buckets
+        final long[] buckets = new long[BUCKETS.length];
+        long count;
+        double sum;
+
+        synchronized void add(double seconds) {
+            for (int i = BUCKETS.length - 1; i >= 0 && seconds <= BUCKETS[i]; i--) {
+                buckets[i]++;
+            }
+            count++;
+            sum += seconds;
+        }
+
+        synchronized SeriesStats snapshot() {
+            SeriesStats copy = new SeriesStats();
+            System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+            copy.count = count;
+            copy.sum = sum;
+            return copy;
+        }
+    }
+}
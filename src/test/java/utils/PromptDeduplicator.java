@@ -0,0 +1,386 @@
+package utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public final class PromptDeduplicator {
+    // Collapses near-identical phrasings of one intent before a run, so each costs one live
+    // call instead of several. Every document (a query's English and Arabic prompt) gets a
+    // MinHash signature per language over character 4-grams of its folded text; LSH bands
+    // of the signatures propose candidate pairs, which are kept only if every language's
+    // estimated Jaccard similarity reaches dedup.threshold. Clusters are merged with
+    // union-find and represented by their earliest member, so all shards agree.
+    //
+    // Signatures keep the low 16 bits of each minimum (b-bit MinHash: a minimum's top bits
+    // lean toward 0, its low bits are uniform, so unrelated rows collide ~1/65536, far below
+    // the estimation error) in one flat char[]; buckets are found by sorting packed long[] keys per band, so
+    // hundreds of thousands of prompts need no per-prompt objects.
+    //
+    //   java -cp <test classpath> utils.PromptDeduplicator <corpus.jsonl> [deduplicated.jsonl]
+
+    private static final int SHINGLE = 4;
+    private static final int INDEX_BITS = 24;
+    // Each candidate is checked against at most this many distinct members of its bucket
+    private static final int MAX_BUCKET_REPRESENTATIVES = 16;
+
+    private final int bands;
+    private final int rows;
+    private final double threshold;
+    private final long[] multipliers;
+    private final long[] addends;
+
+    public PromptDeduplicator(int bands, int rows, double threshold, long seed) {
+        this.bands = bands;
+        this.rows = rows;
+        this.threshold = threshold;
+        Random random = new Random(seed);
+        this.multipliers = new long[bands * rows];
+        this.addends = new long[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            addends[i] = random.nextLong();
+        }
+    }
+
+    public static PromptDeduplicator fromConfig() {
+        return new PromptDeduplicator(ConfigManager.getIntProperty("dedup.bands", 16), ConfigManager.getIntProperty("dedup.rows", 4),
+            Double.parseDouble(ConfigManager.getProperty("dedup.threshold", "0.8")), 42);
+    }
+
+    public static boolean isEnabled() {
+        return ConfigManager.getBooleanProperty("dedup.enabled", false);
+    }
+
+    public Signatures newSignatures(int fields, int expectedDocuments) {
+        return new Signatures(fields, bands * rows, expectedDocuments);
+    }
+
+    public Result deduplicate(Signatures signatures) {
+        int count = signatures.size();
+        if (count >= 1 << INDEX_BITS) {
+            throw new IllegalArgumentException("At most " + ((1 << INDEX_BITS) - 1) + " documents per deduplication");
+        }
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+        }
+        long[] keys = new long[count];
+        int[] representatives = new int[MAX_BUCKET_REPRESENTATIVES];
+        long comparisons = 0;
+        for (int field = 0; field < signatures.fields; field++) {
+            for (int band = 0; band < bands; band++) {
+                for (int doc = 0; doc < count; doc++) {
+                    keys[doc] = (bandHash(signatures, doc, field, band) << INDEX_BITS) | doc;
+                }
+                Arrays.sort(keys);
+                for (int start = 0; start < count; ) {
+                    int stop = start + 1;
+                    while (stop < count && (keys[stop] >>> INDEX_BITS) == (keys[start] >>> INDEX_BITS)) {
+                        stop++;
+                    }
+                    // Within a bucket, each member joins the first representative it is similar to
+                    int known = 0;
+                    for (int i = start; i < stop; i++) {
+                        int doc = (int) (keys[i] & ((1 << INDEX_BITS) - 1));
+                        boolean matched = false;
+                        for (int r = 0; r < known && !matched; r++) {
+                            comparisons++;
+                            if (find(parent, doc) == find(parent, representatives[r]) || similar(signatures, doc, representatives[r])) {
+                                union(parent, doc, representatives[r]);
+                                matched = true;
+                            }
+                        }
+                        if (!matched && known < representatives.length) {
+                            representatives[known++] = doc;
+                        }
+                    }
+                    start = stop;
+                }
+            }
+        }
+        int[] representativeOf = new int[count];
+        int clusters = 0;
+        for (int doc = 0; doc < count; doc++) {
+            representativeOf[doc] = find(parent, doc);
+            if (representativeOf[doc] == doc) {
+                clusters++;
+            }
+        }
+        return new Result(representativeOf, clusters, comparisons);
+    }
+
+    // Estimated Jaccard similarity must reach the threshold in every language
+    private boolean similar(Signatures signatures, int a, int b) {
+        int hashes = signatures.hashes;
+        for (int field = 0; field < signatures.fields; field++) {
+            int offsetA = (a * signatures.fields + field) * hashes;
+            int offsetB = (b * signatures.fields + field) * hashes;
+            int equal = 0;
+            for (int i = 0; i < hashes; i++) {
+                if (signatures.values[offsetA + i] == signatures.values[offsetB + i]) {
+                    equal++;
+                }
+            }
+            if (equal < threshold * hashes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bandHash(Signatures signatures, int doc, int field, int band) {
+        int offset = (doc * signatures.fields + field) * signatures.hashes + band * rows;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < rows; i++) {
+            hash = (hash ^ signatures.values[offset + i]) * 0x100000001b3L;
+        }
+        return (hash ^ (hash >>> 29)) >>> INDEX_BITS; // Leaves room for the document index
+    }
+
+    // Union by smaller index, so every cluster root is its earliest member
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private static int find(int[] parent, int doc) {
+        while (parent[doc] != doc) {
+            parent[doc] = parent[parent[doc]];
+            doc = parent[doc];
+        }
+        return doc;
+    }
+
+    // Representatives of this shard's queries, in corpus order; near-duplicates are dropped
+    public static List<CommonQuery> deduplicate(List<CommonQuery> queries) {
+        PromptDeduplicator deduplicator = fromConfig();
+        Signatures signatures = deduplicator.newSignatures(2, queries.size());
+        for (CommonQuery query : queries) {
+            signatures.add(query.getEn(), query.getAr());
+        }
+        Result result = deduplicator.deduplicate(signatures);
+        List<CommonQuery> kept = new ArrayList<>(result.getClusterCount());
+        for (int i = 0; i < queries.size(); i++) {
+            if (result.isRepresentative(i)) {
+                kept.add(queries.get(i));
+            } else {
+                System.out.println("Prompt dedup: \"" + queries.get(i).getEn() + "\" duplicates \""
+                    + queries.get(result.getRepresentative(i)).getEn() + "\"");
+            }
+        }
+        System.out.println("Prompt dedup: " + result.summary(estimatedPromptMillis()));
+        return kept;
+    }
+
+    // Typical cost of one live call: the median reply time of the latest recorded run, or
+    // dedup.prompt.cost.ms when there is no history yet
+    public static long estimatedPromptMillis() {
+        long fallback = ConfigManager.getIntProperty("dedup.prompt.cost.ms", 5000);
+        Path historyFile = RunHistory.getDefaultPath();
+        if (!Files.exists(historyFile)) {
+            return fallback;
+        }
+        try (RunHistory history = RunHistory.open(historyFile)) {
+            List<String> runs = history.getRunIds();
+            for (int i = runs.size() - 1; i >= 0; i--) {
+                long[] totals = history.read(runs.get(i)).getPrompts().stream()
+                    .filter(RunHistory.PromptSample::isComplete)
+                    .mapToLong(RunHistory.PromptSample::getTotalMillis).sorted().toArray();
+                if (totals.length > 0) {
+                    return totals[totals.length / 2];
+                }
+            }
+        } catch (UncheckedIOException e) {
+            System.out.println("Ignoring unreadable run history " + historyFile + ": " + e.getMessage());
+        }
+        return fallback;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: utils.PromptDeduplicator <corpus.jsonl> [deduplicated.jsonl]");
+            System.exit(2);
+        }
+        Path corpus = Paths.get(args[0]);
+        PromptDeduplicator deduplicator = fromConfig();
+        long start = System.nanoTime();
+        List<String[]> texts = new ArrayList<>();
+        try (Stream<CommonQuery> queries = TestDataLoader.streamCorpus(corpus)) {
+            queries.forEach(query -> texts.add(new String[]{query.getEn(), query.getAr()}));
+        }
+        // Signing dominates, and every document fills its own slots, so it runs on all cores
+        Signatures signatures = deduplicator.newSignatures(2, texts.size());
+        signatures.size = texts.size();
+        signatures.ensureCapacity(texts.size());
+        IntStream.range(0, texts.size()).parallel().forEach(doc -> signatures.sign(doc, texts.get(doc)));
+        texts.clear();
+        long signed = System.nanoTime();
+        Result result = deduplicator.deduplicate(signatures);
+        long clustered = System.nanoTime();
+        System.out.println(String.format("Signed %d queries in %d ms, clustered in %d ms",
+            signatures.size(), (signed - start) / 1_000_000, (clustered - signed) / 1_000_000));
+        System.out.println(result.summary(estimatedPromptMillis()));
+
+        if (args.length > 1) {
+            // Second pass over the file, so the corpus itself is never held twice
+            ObjectMapper mapper = new ObjectMapper();
+            Path output = Paths.get(args[1]);
+            try (Stream<CommonQuery> queries = TestDataLoader.streamCorpus(corpus);
+                 BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                Iterator<CommonQuery> iterator = queries.iterator();
+                for (int doc = 0; iterator.hasNext(); doc++) {
+                    CommonQuery query = iterator.next();
+                    if (result.isRepresentative(doc)) {
+                        writer.write(mapper.writeValueAsString(query));
+                        writer.newLine();
+                    }
+                }
+            }
+            System.out.println("Representatives written to " + output);
+        }
+    }
+
+    public final class Signatures {
+        private final int fields;
+        private final int hashes;
+        private char[] values;
+        private int size;
+
+        private Signatures(int fields, int hashes, int expectedDocuments) {
+            this.fields = fields;
+            this.hashes = hashes;
+            this.values = new char[Math.max(1, expectedDocuments) * fields * hashes];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // One text per field; null or blank texts get an empty signature
+        public void add(String... texts) {
+            ensureCapacity(size + 1);
+            sign(size++, texts);
+        }
+
+        private void ensureCapacity(int documents) {
+            if ((long) documents * fields * hashes > values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max((long) documents * fields * hashes, values.length * 2L)));
+            }
+        }
+
+        private void sign(int doc, String[] texts) {
+            long[] minima = new long[hashes];
+            for (int field = 0; field < fields; field++) {
+                Arrays.fill(minima, Long.MAX_VALUE);
+                String text = field < texts.length && texts[field] != null ? texts[field] : "";
+                forEachShingle(text, shingle -> {
+                    for (int i = 0; i < hashes; i++) {
+                        // Unsigned top bits of an odd multiply-add: a cheap universal hash per row
+                        long value = (shingle * multipliers[i] + addends[i]) >>> 1;
+                        if (value < minima[i]) {
+                            minima[i] = value;
+                        }
+                    }
+                });
+                int offset = (doc * fields + field) * hashes;
+                for (int i = 0; i < hashes; i++) {
+                    values[offset + i] = (char) minima[i];
+                }
+            }
+        }
+    }
+
+    // 64-bit hashes of overlapping character 4-grams of the TextNormalizer-folded text, with
+    // every run of non-letters as one space. Shorter texts are one shingle.
+    static void forEachShingle(String text, java.util.function.LongConsumer sink) {
+        char[] folded = new char[text.length()];
+        int length = 0;
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = TextNormalizer.fold(text.charAt(i));
+            if (c == TextNormalizer.DROPPED) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                folded[length++] = c;
+                space = false;
+            } else if (!space) {
+                folded[length++] = ' ';
+                space = true;
+            }
+        }
+        if (length > 0 && folded[length - 1] == ' ') {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+        for (int start = 0; start <= Math.max(0, length - SHINGLE); start++) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = start; i < Math.min(length, start + SHINGLE); i++) {
+                hash = (hash ^ folded[i]) * 0x100000001b3L;
+            }
+            sink.accept(hash ^ (hash >>> 31));
+        }
+    }
+
+    public static final class Result {
+        private final int[] representativeOf;
+        private final int clusterCount;
+        private final long comparisons;
+
+        Result(int[] representativeOf, int clusterCount, long comparisons) {
+            this.representativeOf = representativeOf;
+            this.clusterCount = clusterCount;
+            this.comparisons = comparisons;
+        }
+
+        public int getDocumentCount() {
+            return representativeOf.length;
+        }
+
+        public int getClusterCount() {
+            return clusterCount;
+        }
+
+        public int getDuplicateCount() {
+            return representativeOf.length - clusterCount;
+        }
+
+        public int getRepresentative(int doc) {
+            return representativeOf[doc];
+        }
+
+        public boolean isRepresentative(int doc) {
+            return representativeOf[doc] == doc;
+        }
+
+        // Each duplicate would have cost one call per language
+        public String summary(long promptMillis) {
+            return String.format("%d queries -> %d representatives (%d near-duplicates, %d signature comparisons), "
+                    + "~%.1f s of live calls saved per language at %d ms per prompt",
+                getDocumentCount(), clusterCount, getDuplicateCount(), comparisons,
+                getDuplicateCount() * promptMillis / 1000.0, promptMillis);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package utils;
+
+public final class RecordedResponse {
+    private final String prompt;
+    private final String language;
+    private final String text;
+    private final long timeToFirstTokenMillis;
+    private final long totalMillis;
+    private final int chunkCount;
+    private final boolean complete;
+    private final long recordedAt;
+
+    public RecordedResponse(String prompt, String language, String text, long timeToFirstTokenMillis,
+                            long totalMillis, int chunkCount, boolean complete, long recordedAt) {
+        this.prompt = prompt;
+        this.language = language;
+        this.text = text;
+        this.timeToFirstTokenMillis = timeToFirstTokenMillis;
+        this.totalMillis = totalMillis;
+        this.chunkCount = chunkCount;
+        this.complete = complete;
+        this.recordedAt = recordedAt;
+    }
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getTimeToFirstTokenMillis() {
+        return timeToFirstTokenMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+}
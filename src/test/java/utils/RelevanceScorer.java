@@ -0,0 +1,107 @@
+package utils;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public final class RelevanceScorer {
+    // BM25 relevance of a response to a prompt. The prompt is tokenised once into a
+    // Query; each response is then tokenised in a single pass with no per-token allocation.
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Lazy, so a scorer over other statistics never builds (and maps) the default ones
+    private static class Holder {
+        static final RelevanceScorer DEFAULT = new RelevanceScorer(CorpusStatistics.getDefault(), getDefaultThreshold());
+    }
+
+    private final CorpusStatistics statistics;
+    private final double threshold;
+
+    public RelevanceScorer(CorpusStatistics statistics, double threshold) {
+        this.statistics = statistics;
+        this.threshold = threshold;
+    }
+
+    public static RelevanceScorer getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    public static double getDefaultThreshold() {
+        return Double.parseDouble(ConfigManager.getProperty("relevance.bm25.threshold", "0.15"));
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public Query compile(String prompt) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        Tokenizer.forEachToken(prompt, distinct::add);
+        long[] terms = new long[distinct.size()];
+        double[] idf = new double[terms.length];
+        int i = 0;
+        for (long term : distinct) {
+            terms[i] = term;
+            idf[i] = statistics.idf(term);
+            i++;
+        }
+        return new Query(terms, idf);
+    }
+
+    public boolean isRelevant(String prompt, String response) {
+        return score(compile(prompt), response) >= threshold;
+    }
+
+    public boolean isRelevant(Query query, String response) {
+        return score(query, response) >= threshold;
+    }
+
+    // BM25 divided by its upper bound for this query (every term saturated), so
+    // scores land in [0, 1) and one threshold works for short and long prompts
+    public double score(Query query, String response) {
+        if (query.terms.length == 0 || response == null || response.isEmpty()) {
+            return 0;
+        }
+        int[] termFrequency = new int[query.terms.length];
+        int length = Tokenizer.forEachToken(response, hash -> {
+            long[] terms = query.terms;
+            for (int i = 0; i < terms.length; i++) {
+                if (terms[i] == hash) {
+                    termFrequency[i]++;
+                    return;
+                }
+            }
+        });
+
+        double lengthNorm = K1 * (1 - B + B * length / statistics.getAverageDocumentLength());
+        double score = 0;
+        for (int i = 0; i < termFrequency.length; i++) {
+            int tf = termFrequency[i];
+            if (tf > 0) {
+                score += query.idf[i] * tf * (K1 + 1) / (tf + lengthNorm);
+            }
+        }
+        return query.maxScore == 0 ? 0 : score / query.maxScore;
+    }
+
+    public static final class Query {
+        private final long[] terms;
+        private final double[] idf;
+        private final double maxScore;
+
+        Query(long[] terms, double[] idf) {
+            this.terms = terms;
+            this.idf = idf;
+            double max = 0;
+            for (double termIdf : idf) {
+                max += termIdf * (K1 + 1);
+            }
+            this.maxScore = max;
+        }
+
+        public int size() {
+            return terms.length;
+        }
+    }
+}
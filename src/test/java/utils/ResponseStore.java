@@ -0,0 +1,315 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public final class ResponseStore implements Closeable {
+    // Append-only, content-addressed log of recorded chatbot responses.
+    //
+    //   header  "UASKRS01"
+    //   record  [type:1][payloadLength:4][payload]
+    //   BLOB    [contentDigest:16][utf-8 text]                     one per distinct response text
+    //   ENTRY   [keyDigest:16][contentDigest:16][recordedAt:8][ttft:8][total:8][chunks:4]
+    //           [complete:1][promptLength:4][prompt][languageLength:4][language]
+    //
+    // keyDigest = SHA-256(language + NUL + prompt), contentDigest = SHA-256(text), both
+    // truncated to 128 bits. The newest ENTRY for a key wins. Reads go through a
+    // memory-mapped view of the file; the index is rebuilt by one scan on open.
+
+    public static final String FILE_NAME = "responses.store";
+
+    private static final byte[] MAGIC = "UASKRS01".getBytes(StandardCharsets.US_ASCII);
+    private static final byte BLOB = 1;
+    private static final byte ENTRY = 2;
+    private static final int RECORD_HEADER = 5;
+    private static final int ENTRY_FIXED = 16 + 16 + 8 + 8 + 8 + 4 + 1;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static ResponseStore shared;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<Digest, Integer> entries = new HashMap<>();
+    private final Map<Digest, Integer> blobs = new HashMap<>();
+    private volatile MappedByteBuffer mapped;
+    private long end;
+
+    private ResponseStore(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+        }
+        remap();
+        loadIndex();
+    }
+
+    public static ResponseStore open(Path directory) {
+        try {
+            return new ResponseStore(directory.resolve(FILE_NAME));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open response store in " + directory, e);
+        }
+    }
+
+    public static synchronized ResponseStore shared() {
+        if (shared == null) {
+            shared = open(getDefaultDirectory());
+            Runtime.getRuntime().addShutdownHook(new Thread(ResponseStore::closeShared, "response-store-close"));
+        }
+        return shared;
+    }
+
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    public static Path getDefaultDirectory() {
+        return Paths.get(ConfigManager.getProperty("store.path", "test-reports/response-store"));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void put(RecordedResponse response) {
+        byte[] text = response.getText().getBytes(StandardCharsets.UTF_8);
+        byte[] prompt = response.getPrompt().getBytes(StandardCharsets.UTF_8);
+        byte[] language = response.getLanguage().getBytes(StandardCharsets.UTF_8);
+        Digest content = Digest.of(text);
+        Digest key = keyOf(response.getPrompt(), response.getLanguage());
+
+        try {
+            if (!blobs.containsKey(content)) {
+                ByteBuffer blob = ByteBuffer.allocate(RECORD_HEADER + 16 + text.length);
+                blob.put(BLOB).putInt(16 + text.length);
+                content.writeTo(blob);
+                blob.put(text).flip();
+                blobs.put(content, (int) append(blob) + RECORD_HEADER);
+            }
+
+            int payload = ENTRY_FIXED + 4 + prompt.length + 4 + language.length;
+            ByteBuffer entry = ByteBuffer.allocate(RECORD_HEADER + payload);
+            entry.put(ENTRY).putInt(payload);
+            key.writeTo(entry);
+            content.writeTo(entry);
+            entry.putLong(response.getRecordedAt())
+                .putLong(response.getTimeToFirstTokenMillis())
+                .putLong(response.getTotalMillis())
+                .putInt(response.getChunkCount())
+                .put((byte) (response.isComplete() ? 1 : 0))
+                .putInt(prompt.length).put(prompt)
+                .putInt(language.length).put(language)
+                .flip();
+            entries.put(key, (int) append(entry) + RECORD_HEADER);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to response store " + file, e);
+        }
+    }
+
+    public RecordedResponse get(String prompt, String language) {
+        Integer offset;
+        synchronized (this) {
+            offset = entries.get(keyOf(prompt, language));
+        }
+        return offset == null ? null : readEntry(offset);
+    }
+
+    // Latest response per (prompt, language), in the order they were first recorded
+    public void forEach(Consumer<RecordedResponse> consumer) {
+        List<Integer> offsets;
+        synchronized (this) {
+            offsets = new ArrayList<>(entries.values());
+        }
+        offsets.sort(Integer::compare);
+        for (int offset : offsets) {
+            consumer.accept(readEntry(offset));
+        }
+    }
+
+    public List<RecordedResponse> readAll() {
+        List<RecordedResponse> all = new ArrayList<>(size());
+        forEach(all::add);
+        return all;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close response store " + file, e);
+        }
+    }
+
+    private RecordedResponse readEntry(int offset) {
+        ByteBuffer view = view(offset);
+        view.position(view.position() + 16);
+        Digest content = Digest.readFrom(view);
+        long recordedAt = view.getLong();
+        long ttft = view.getLong();
+        long total = view.getLong();
+        int chunks = view.getInt();
+        boolean complete = view.get() == 1;
+        String prompt = readString(view, view.getInt());
+        String language = readString(view, view.getInt());
+
+        Integer blobOffset;
+        synchronized (this) {
+            blobOffset = blobs.get(content);
+        }
+        if (blobOffset == null) {
+            throw new IllegalStateException("Response store " + file + " is missing content for: " + prompt);
+        }
+        ByteBuffer blob = view(blobOffset);
+        int textLength = blob.getInt(blobOffset - 4) - 16;
+        blob.position(blob.position() + 16);
+        String text = readString(blob, textLength);
+        return new RecordedResponse(prompt, language, text, ttft, total, chunks, complete, recordedAt);
+    }
+
+    private ByteBuffer view(int offset) {
+        MappedByteBuffer current = mapped;
+        if (offset >= current.limit()) {
+            synchronized (this) {
+                remapQuietly();
+                current = mapped;
+            }
+        }
+        ByteBuffer view = current.duplicate();
+        view.position(offset);
+        return view;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private void loadIndex() throws IOException {
+        ByteBuffer view = mapped.duplicate();
+        byte[] magic = new byte[MAGIC.length];
+        if (view.limit() < MAGIC.length || !Arrays.equals(magic(view, magic), MAGIC)) {
+            throw new IOException(file + " is not a response store");
+        }
+        int position = MAGIC.length;
+        int limit = view.limit();
+        while (position + RECORD_HEADER <= limit) {
+            byte type = view.get(position);
+            int length = view.getInt(position + 1);
+            int payload = position + RECORD_HEADER;
+            if ((type != BLOB && type != ENTRY) || length < 16 || payload + length > limit) {
+                break; // Torn write from an interrupted run; everything after it is discarded
+            }
+            view.position(payload);
+            Digest digest = Digest.readFrom(view);
+            (type == BLOB ? blobs : entries).put(digest, payload);
+            position = payload + length;
+        }
+        end = position;
+        if (end < channel.size()) {
+            channel.truncate(end);
+            remap();
+        }
+    }
+
+    private static byte[] magic(ByteBuffer view, byte[] into) {
+        view.get(into).rewind();
+        return into;
+    }
+
+    private long append(ByteBuffer record) throws IOException {
+        long position = end;
+        if (position + record.remaining() > Integer.MAX_VALUE) {
+            throw new IOException("Response store " + file + " exceeds 2 GB; start a new store.path");
+        }
+        while (record.hasRemaining()) {
+            end += channel.write(record, end);
+        }
+        return position;
+    }
+
+    private void remap() throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Response store " + file + " exceeds 2 GB; start a new store.path");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private void remapQuietly() {
+        try {
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Digest keyOf(String prompt, String language) {
+        return Digest.of((language + '\u0000' + prompt).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Digest {
+        private final long high;
+        private final long low;
+
+        private Digest(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static Digest of(byte[] bytes) {
+            ByteBuffer hash = ByteBuffer.wrap(SHA256.get().digest(bytes));
+            return new Digest(hash.getLong(), hash.getLong());
+        }
+
+        static Digest readFrom(ByteBuffer buffer) {
+            return new Digest(buffer.getLong(), buffer.getLong());
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(high).putLong(low);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Digest && ((Digest) other).high == high && ((Digest) other).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high * 31 + low);
+        }
+    }
+}
@@ -0,0 +1,586 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public final class RunHistory implements Closeable {
+    // Append-only log of compact per-run records, so latency and pass rates can be compared
+    // across runs without keeping every run's HTML reports.
+    //
+    //   header   "UASKRH01"
+    //   record   [payloadLength:4][payload]                       one per run, or per shard of a run
+    //   payload  [runIdLength:2][runId][startedAt:8][finishedAt:8]
+    //            [stringCount:4] then [length:4][utf-8] per string
+    //            [testCount:4]   then [test:4][language:4][verdict:1][millis:8]
+    //            [promptCount:4] then [test:4][language:4][prompt:4][ttft:4][total:4][chunks:4][length:4][flags:1]
+    //            [phaseCount:4]  then [test:4][language:4][phase:4][count:8][micros:8]
+    //
+    // Strings are interned per record, so a test name or prompt repeated across samples costs
+    // four bytes. The index (run id -> record offsets, oldest first) is rebuilt on open by
+    // hopping from one record header to the next; only the runs asked for are decoded.
+    // Shards of one run share history.run.id and append under a file lock.
+
+    public static final String FILE_NAME = "runs.history";
+
+    public enum Verdict { PASSED, FAILED, SKIPPED }
+
+    private static final byte[] MAGIC = "UASKRH01".getBytes(StandardCharsets.US_ASCII);
+    private static final int FLAG_PASSED = 1;
+    private static final int FLAG_COMPLETE = 2;
+    // FileLock only excludes other processes; threads of this one queue here
+    private static final Object APPEND_LOCK = new Object();
+
+    // This JVM's observations, appended to the shared history by exportRun
+    private static final String RUN_ID = ConfigManager.getProperty("history.run.id", Instant.now().toString());
+    private static final long STARTED_AT = System.currentTimeMillis();
+    private static final ThreadLocal<List<PromptSample>> pendingPrompts = ThreadLocal.withInitial(ArrayList::new);
+    private static final Queue<TestResult> pendingTests = new ConcurrentLinkedQueue<>();
+    private static final Queue<PromptSample> finishedPrompts = new ConcurrentLinkedQueue<>();
+    private static final Map<String, double[]> exportedPhases = new HashMap<>();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, List<Long>> index = new LinkedHashMap<>();
+    private long end;
+
+    private RunHistory(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        synchronized (APPEND_LOCK) {
+            try (FileLock ignored = channel.lock()) {
+                if (channel.size() == 0) {
+                    channel.write(ByteBuffer.wrap(MAGIC), 0);
+                }
+                ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+                channel.read(magic, 0);
+                if (!Arrays.equals(magic.array(), MAGIC)) {
+                    throw new IOException(file + " is not a run history");
+                }
+                end = MAGIC.length;
+                scan();
+                if (end < channel.size()) {
+                    channel.truncate(end); // Torn write from an interrupted run
+                }
+            }
+        }
+    }
+
+    public static RunHistory open(Path file) {
+        try {
+            return new RunHistory(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open run history " + file, e);
+        }
+    }
+
+    public static Path getDefaultPath() {
+        return Paths.get(ConfigManager.getProperty("history.path", "test-reports/run-history/" + FILE_NAME));
+    }
+
+    public static boolean isEnabled() {
+        return ConfigManager.getBooleanProperty("history.enabled", true);
+    }
+
+    public static String getCurrentRunId() {
+        return RUN_ID;
+    }
+
+    // RunHistoryListener brackets each test method on its worker thread
+    public static void beginTest() {
+        pendingPrompts.get().clear();
+    }
+
+    public static void observePrompt(String prompt, String language, long ttftMillis, long totalMillis,
+                                     int chunks, int length, boolean complete) {
+        pendingPrompts.get().add(new PromptSample(null, language, prompt, ttftMillis, totalMillis, chunks, length, complete, false));
+    }
+
+    // Prompts sent since beginTest inherit the test's verdict
+    public static void finishTest(String test, String language, Verdict verdict, long millis) {
+        pendingTests.add(new TestResult(test, language, verdict, millis));
+        List<PromptSample> prompts = pendingPrompts.get();
+        for (PromptSample sample : prompts) {
+            finishedPrompts.add(new PromptSample(test, sample.language, sample.prompt, sample.ttftMillis,
+                sample.totalMillis, sample.chunks, sample.length, sample.complete, verdict == Verdict.PASSED));
+        }
+        prompts.clear();
+    }
+
+    // Appends everything observed since the last export, including phase totals, as one record
+    public static synchronized void exportRun() {
+        List<TestResult> tests = drain(pendingTests);
+        List<PromptSample> prompts = drain(finishedPrompts);
+        List<PhaseTotal> phases = new ArrayList<>();
+        PhaseMetrics.forEachSeries((test, language, phase, count, sumSeconds) -> {
+            double[] previous = exportedPhases.getOrDefault(test + '\u0000' + language + '\u0000' + phase, new double[2]);
+            if (count > previous[0]) {
+                phases.add(new PhaseTotal(test, language, phase, count - (long) previous[0],
+                    Math.round((sumSeconds - previous[1]) * 1e6)));
+                exportedPhases.put(test + '\u0000' + language + '\u0000' + phase, new double[]{count, sumSeconds});
+            }
+        });
+        if (tests.isEmpty() && prompts.isEmpty() && phases.isEmpty()) {
+            return;
+        }
+        Path path = getDefaultPath();
+        try (RunHistory history = open(path)) {
+            history.append(new Run(RUN_ID, STARTED_AT, System.currentTimeMillis(), tests, prompts, phases));
+        }
+        System.out.println(String.format("Run history: %d tests and %d prompts of run %s appended to %s",
+            tests.size(), prompts.size(), RUN_ID, path));
+    }
+
+    private static <T> List<T> drain(Queue<T> queue) {
+        List<T> drained = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            drained.add(item);
+        }
+        return drained;
+    }
+
+    public void append(Run run) {
+        try {
+            appendRecord(encode(run));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to run history " + file, e);
+        }
+    }
+
+    // Copies over records of another history (another machine's shards) not already present
+    public int importFrom(RunHistory other) {
+        try {
+            Set<String> present = new HashSet<>();
+            for (long offset : offsets()) {
+                present.add(digest(readPayload(offset)));
+            }
+            int imported = 0;
+            for (long offset : other.offsets()) {
+                byte[] payload = other.readPayload(offset);
+                if (present.add(digest(payload))) {
+                    appendRecord(payload);
+                    imported++;
+                }
+            }
+            return imported;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import " + other.file + " into run history " + file, e);
+        }
+    }
+
+    // Oldest first
+    public synchronized List<String> getRunIds() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    // All records of the run merged, or null if the history does not know it
+    public Run read(String runId) {
+        List<Long> offsets;
+        synchronized (this) {
+            offsets = index.containsKey(runId) ? new ArrayList<>(index.get(runId)) : null;
+        }
+        if (offsets == null) {
+            return null;
+        }
+        try {
+            Run merged = null;
+            for (long offset : offsets) {
+                Run part = decode(ByteBuffer.wrap(readPayload(offset)));
+                merged = merged == null ? part : merged.merge(part);
+            }
+            return merged;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read run " + runId + " from " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close run history " + file, e);
+        }
+    }
+
+    private void appendRecord(byte[] payload) throws IOException {
+        synchronized (APPEND_LOCK) {
+            synchronized (this) {
+                try (FileLock ignored = channel.lock()) {
+                    // Pick up records other shards appended since we last looked
+                    scan();
+                    ByteBuffer record = ByteBuffer.allocate(4 + payload.length);
+                    record.putInt(payload.length).put(payload).flip();
+                    long position = end;
+                    while (record.hasRemaining()) {
+                        position += channel.write(record, position);
+                    }
+                    channel.force(false);
+                    index.computeIfAbsent(runIdOf(payload), id -> new ArrayList<>()).add(end);
+                    end = position;
+                }
+            }
+        }
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(6);
+        while (end + 6 <= size) {
+            header.clear();
+            readFully(header, end);
+            int length = header.getInt(0);
+            int idLength = header.getShort(4) & 0xFFFF;
+            if (length < 2 + idLength + 16 || end + 4 + length > size) {
+                break;
+            }
+            ByteBuffer id = ByteBuffer.allocate(idLength);
+            readFully(id, end + 6);
+            index.computeIfAbsent(new String(id.array(), StandardCharsets.UTF_8), key -> new ArrayList<>()).add(end);
+            end += 4 + length;
+        }
+    }
+
+    private synchronized List<Long> offsets() {
+        List<Long> offsets = new ArrayList<>();
+        index.values().forEach(offsets::addAll);
+        Collections.sort(offsets);
+        return offsets;
+    }
+
+    private byte[] readPayload(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length, offset);
+        ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+        readFully(payload, offset + 4);
+        return payload.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of run history " + file);
+            }
+        }
+    }
+
+    private static String runIdOf(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] id = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static String digest(byte[] payload) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(payload));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encode(Run run) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeInt(run.tests.size());
+        for (TestResult test : run.tests) {
+            body.writeInt(intern(strings, test.test));
+            body.writeInt(intern(strings, test.language));
+            body.writeByte(test.verdict.ordinal());
+            body.writeLong(test.millis);
+        }
+        body.writeInt(run.prompts.size());
+        for (PromptSample sample : run.prompts) {
+            body.writeInt(intern(strings, sample.test));
+            body.writeInt(intern(strings, sample.language));
+            body.writeInt(intern(strings, sample.prompt));
+            body.writeInt(toInt(sample.ttftMillis));
+            body.writeInt(toInt(sample.totalMillis));
+            body.writeInt(sample.chunks);
+            body.writeInt(sample.length);
+            body.writeByte((sample.passed ? FLAG_PASSED : 0) | (sample.complete ? FLAG_COMPLETE : 0));
+        }
+        body.writeInt(run.phases.size());
+        for (PhaseTotal phase : run.phases) {
+            body.writeInt(intern(strings, phase.test));
+            body.writeInt(intern(strings, phase.language));
+            body.writeInt(intern(strings, phase.phase));
+            body.writeLong(phase.count);
+            body.writeLong(phase.micros);
+        }
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(bodyBytes.size() + 1024);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        byte[] id = run.id.getBytes(StandardCharsets.UTF_8);
+        payload.writeShort(id.length);
+        payload.write(id);
+        payload.writeLong(run.startedAt);
+        payload.writeLong(run.finishedAt);
+        payload.writeInt(strings.size());
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            payload.writeInt(bytes.length);
+            payload.write(bytes);
+        }
+        bodyBytes.writeTo(payload);
+        payload.flush();
+        return payloadBytes.toByteArray();
+    }
+
+    private static Run decode(ByteBuffer buffer) {
+        byte[] id = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(id);
+        long startedAt = buffer.getLong();
+        long finishedAt = buffer.getLong();
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        List<TestResult> tests = new ArrayList<>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            tests.add(new TestResult(strings[buffer.getInt()], strings[buffer.getInt()],
+                Verdict.values()[buffer.get()], buffer.getLong()));
+        }
+        List<PromptSample> prompts = new ArrayList<>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            String test = strings[buffer.getInt()];
+            String language = strings[buffer.getInt()];
+            String prompt = strings[buffer.getInt()];
+            long ttft = buffer.getInt();
+            long total = buffer.getInt();
+            int chunks = buffer.getInt();
+            int length = buffer.getInt();
+            int flags = buffer.get();
+            prompts.add(new PromptSample(test, language, prompt, ttft, total, chunks, length,
+                (flags & FLAG_COMPLETE) != 0, (flags & FLAG_PASSED) != 0));
+        }
+        List<PhaseTotal> phases = new ArrayList<>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            phases.add(new PhaseTotal(strings[buffer.getInt()], strings[buffer.getInt()], strings[buffer.getInt()],
+                buffer.getLong(), buffer.getLong()));
+        }
+        return new Run(new String(id, StandardCharsets.UTF_8), startedAt, finishedAt, tests, prompts, phases);
+    }
+
+    private static int intern(Map<String, Integer> strings, String value) {
+        return strings.computeIfAbsent(value == null ? "" : value, key -> strings.size());
+    }
+
+    private static int toInt(long millis) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, millis));
+    }
+
+    public static final class Run {
+        private final String id;
+        private final long startedAt;
+        private final long finishedAt;
+        private final List<TestResult> tests;
+        private final List<PromptSample> prompts;
+        private final List<PhaseTotal> phases;
+
+        public Run(String id, long startedAt, long finishedAt, List<TestResult> tests,
+                   List<PromptSample> prompts, List<PhaseTotal> phases) {
+            this.id = id;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
+            this.tests = tests;
+            this.prompts = prompts;
+            this.phases = phases;
+        }
+
+        Run merge(Run other) {
+            List<TestResult> allTests = new ArrayList<>(tests);
+            allTests.addAll(other.tests);
+            List<PromptSample> allPrompts = new ArrayList<>(prompts);
+            allPrompts.addAll(other.prompts);
+            List<PhaseTotal> allPhases = new ArrayList<>(phases);
+            allPhases.addAll(other.phases);
+            return new Run(id, Math.min(startedAt, other.startedAt), Math.max(finishedAt, other.finishedAt),
+                allTests, allPrompts, allPhases);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        public long getFinishedAt() {
+            return finishedAt;
+        }
+
+        public List<TestResult> getTests() {
+            return tests;
+        }
+
+        public List<PromptSample> getPrompts() {
+            return prompts;
+        }
+
+        public List<PhaseTotal> getPhases() {
+            return phases;
+        }
+    }
+
+    public static final class TestResult {
+        private final String test;
+        private final String language;
+        private final Verdict verdict;
+        private final long millis;
+
+        public TestResult(String test, String language, Verdict verdict, long millis) {
+            this.test = test;
+            this.language = language == null ? "" : language;
+            this.verdict = verdict;
+            this.millis = millis;
+        }
+
+        public String getTest() {
+            return test;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    public static final class PromptSample {
+        private final String test;
+        private final String language;
+        private final String prompt;
+        private final long ttftMillis;
+        private final long totalMillis;
+        private final int chunks;
+        private final int length;
+        private final boolean complete;
+        private final boolean passed;
+
+        public PromptSample(String test, String language, String prompt, long ttftMillis, long totalMillis,
+                            int chunks, int length, boolean complete, boolean passed) {
+            this.test = test;
+            this.language = language == null ? "" : language;
+            this.prompt = prompt;
+            this.ttftMillis = ttftMillis;
+            this.totalMillis = totalMillis;
+            this.chunks = chunks;
+            this.length = length;
+            this.complete = complete;
+            this.passed = passed;
+        }
+
+        public String getTest() {
+            return test;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public String getPrompt() {
+            return prompt;
+        }
+
+        // -1 when the backend could not observe the first chunk
+        public long getTimeToFirstTokenMillis() {
+            return ttftMillis;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public int getChunkCount() {
+            return chunks;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        // Verdict of the test method that sent the prompt
+        public boolean isPassed() {
+            return passed;
+        }
+    }
+
+    public static final class PhaseTotal {
+        private final String test;
+        private final String language;
+        private final String phase;
+        private final long count;
+        private final long micros;
+
+        public PhaseTotal(String test, String language, String phase, long count, long micros) {
+            this.test = test;
+            this.language = language == null ? "" : language;
+            this.phase = phase;
+            this.count = count;
+            this.micros = micros;
+        }
+
+        public String getTest() {
+            return test;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMicros() {
+            return micros;
+        }
+    }
+}
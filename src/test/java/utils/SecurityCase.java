@@ -0,0 +1,36 @@
+package utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public final class SecurityCase {
+    private final String name;
+    private final String prompt;
+    private final String expectedBehavior;
+
+    @JsonCreator
+    public SecurityCase(@JsonProperty("name") String name,
+                        @JsonProperty("prompt") String prompt,
+                        @JsonProperty("expectedBehavior") String expectedBehavior) {
+        this.name = name;
+        this.prompt = prompt;
+        this.expectedBehavior = expectedBehavior;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public String getExpectedBehavior() {
+        return expectedBehavior;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,62 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+
+public final class Shard {
+    // Which slice of the work this JVM runs: shard.index of shard.count. Ownership is a
+    // stable hash of a key (prompt text, test method name), so every JVM or machine agrees
+    // on the split without coordinating and a key stays on its shard between runs.
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Shard CURRENT = new Shard(
+        ConfigManager.getIntProperty("shard.index", 0),
+        ConfigManager.getIntProperty("shard.count", 1));
+
+    private final int index;
+    private final int count;
+
+    public Shard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard " + index + " of " + count);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    public static Shard current() {
+        return CURRENT;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    public boolean owns(String key) {
+        return count == 1 || shardOf(key, count) == index;
+    }
+
+    // FNV-1a over the UTF-8 bytes, so the split does not depend on JVM or platform
+    public static int shardOf(String key, int count) {
+        long hash = FNV_OFFSET;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 32;
+        return (int) Long.remainderUnsigned(hash, count);
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index + " of " + count;
+    }
+}
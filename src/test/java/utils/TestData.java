@@ -0,0 +1,75 @@
+package utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class TestData {
+    // Immutable once parsed, so a single instance is shared by every worker thread
+    private final List<String> languages;
+    private final List<CommonQuery> commonQueries;
+    private final List<SecurityCase> securityTests;
+    private final List<ConsistencyCase> multilingualConsistency;
+    private final ValidationRules validationRules;
+
+    @JsonCreator
+    public TestData(@JsonProperty("languages") List<String> languages,
+                    @JsonProperty("testPrompts") TestPrompts testPrompts,
+                    @JsonProperty("validationRules") ValidationRules validationRules) {
+        TestPrompts prompts = testPrompts != null ? testPrompts : new TestPrompts(null, null, null);
+        this.languages = immutable(languages);
+        this.commonQueries = immutable(prompts.commonQueries);
+        this.securityTests = immutable(prompts.securityTests);
+        this.multilingualConsistency = immutable(prompts.multilingualConsistency);
+        this.validationRules = validationRules;
+    }
+
+    public List<String> getLanguages() {
+        return languages;
+    }
+
+    public List<CommonQuery> getCommonQueries() {
+        return commonQueries;
+    }
+
+    public List<SecurityCase> getSecurityTests() {
+        return securityTests;
+    }
+
+    public SecurityCase getSecurityCase(String name) {
+        return securityTests.stream()
+            .filter(test -> test.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No security test named " + name));
+    }
+
+    public List<ConsistencyCase> getMultilingualConsistency() {
+        return multilingualConsistency;
+    }
+
+    public ValidationRules getValidationRules() {
+        return validationRules;
+    }
+
+    private static <T> List<T> immutable(List<T> list) {
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    static final class TestPrompts {
+        private final List<CommonQuery> commonQueries;
+        private final List<SecurityCase> securityTests;
+        private final List<ConsistencyCase> multilingualConsistency;
+
+        @JsonCreator
+        TestPrompts(@JsonProperty("commonQueries") List<CommonQuery> commonQueries,
+                    @JsonProperty("securityTests") List<SecurityCase> securityTests,
+                    @JsonProperty("multilingualConsistency") List<ConsistencyCase> multilingualConsistency) {
+            this.commonQueries = commonQueries;
+            this.securityTests = securityTests;
+            this.multilingualConsistency = multilingualConsistency;
+        }
+    }
+}
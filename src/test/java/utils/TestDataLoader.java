@@ -1,30 +1,170 @@
 package utils;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TestDataLoader {
     private static final ObjectMapper mapper = new ObjectMapper();
     
-    public static Map<String, Object> loadTestData() {
+    // Extra fields in large prompt corpora (ids, tags, sources) are ignored
+    private static final ObjectReader corpusReader = mapper.readerFor(CommonQuery.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    
+    // Lazy holders: test-data.json is parsed once per JVM and published safely to all threads
+    private static class Holder {
+        static final TestData TEST_DATA = PromptDeduplicator.isEnabled() ? parseDeduplicated(Shard.current())
+            : parseTestData(Shard.current());
+    }
+    
+    private static class FullHolder {
+        static final TestData TEST_DATA = Shard.current().isSharded() ? parseTestData() : Holder.TEST_DATA;
+    }
+    
+    // This shard's slice of the prompt corpus (all of it unless shard.count > 1)
+    public static TestData loadTestData() {
+        return Holder.TEST_DATA;
+    }
+    
+    // Every prompt regardless of sharding, for corpus-wide statistics and the stub chatbot
+    public static TestData loadFullTestData() {
+        return FullHolder.TEST_DATA;
+    }
+    
+    public static TestData parseTestData() {
+        return parseTestData(new Shard(0, 1));
+    }
+    
+    public static TestData parseTestData(Shard shard) {
         try (InputStream input = TestDataLoader.class.getClassLoader()
                 .getResourceAsStream("test-data.json")) {
             if (input == null) {
                 throw new RuntimeException("test-data.json not found");
             }
-            return mapper.readValue(input, new TypeReference<Map<String, Object>>() {});
+            return shard.isSharded() ? parseShard(input, shard) : parseTestData(input);
         } catch (IOException e) {
             throw new RuntimeException("Failed to load test data", e);
         }
     }
     
-    @SuppressWarnings("unchecked")
-    public static Map<String, Object> getTestPrompts() {
-        Map<String, Object> testData = loadTestData();
-        return (Map<String, Object>) testData.get("testPrompts");
+    // Collapses near-duplicate commonQueries over the whole corpus before slicing, so every
+    // shard keeps the same representatives (see PromptDeduplicator)
+    public static TestData parseDeduplicated(Shard shard) {
+        TestData full = parseTestData();
+        List<CommonQuery> commonQueries = new ArrayList<>();
+        for (CommonQuery query : PromptDeduplicator.deduplicate(full.getCommonQueries())) {
+            if (shard.owns(query.getEn())) {
+                commonQueries.add(query);
+            }
+        }
+        List<ConsistencyCase> multilingualConsistency = new ArrayList<>();
+        for (ConsistencyCase consistencyCase : full.getMultilingualConsistency()) {
+            if (shard.owns(consistencyCase.getEn())) {
+                multilingualConsistency.add(consistencyCase);
+            }
+        }
+        return new TestData(full.getLanguages(), new TestData.TestPrompts(commonQueries, full.getSecurityTests(),
+            multilingualConsistency), full.getValidationRules());
+    }
+    
+    public static TestData parseTestData(InputStream input) throws IOException {
+        return mapper.readValue(input, TestData.class);
+    }
+    
+    // Streams the file and keeps only the commonQueries and multilingualConsistency entries
+    // the shard owns (by English prompt), so a shard never holds the whole corpus. Security
+    // cases are looked up by name and stay whole; their test methods are sharded instead.
+    public static TestData parseShard(InputStream input, Shard shard) throws IOException {
+        List<String> languages = null;
+        List<CommonQuery> commonQueries = new ArrayList<>();
+        List<SecurityCase> securityTests = null;
+        List<ConsistencyCase> multilingualConsistency = new ArrayList<>();
+        ValidationRules validationRules = null;
+        
+        try (JsonParser parser = mapper.getFactory().createParser(input)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("languages".equals(field)) {
+                    languages = mapper.readValue(parser, new TypeReference<List<String>>() { });
+                } else if ("validationRules".equals(field)) {
+                    validationRules = mapper.readValue(parser, ValidationRules.class);
+                } else if ("testPrompts".equals(field)) {
+                    expect(parser.currentToken(), JsonToken.START_OBJECT);
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String list = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("commonQueries".equals(list)) {
+                            readSlice(parser, CommonQuery.class, CommonQuery::getEn, shard, commonQueries);
+                        } else if ("multilingualConsistency".equals(list)) {
+                            readSlice(parser, ConsistencyCase.class, ConsistencyCase::getEn, shard, multilingualConsistency);
+                        } else if ("securityTests".equals(list)) {
+                            securityTests = mapper.readValue(parser, new TypeReference<List<SecurityCase>>() { });
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new TestData(languages, new TestData.TestPrompts(commonQueries, securityTests, multilingualConsistency),
+            validationRules);
+    }
+    
+    private static <T> void readSlice(JsonParser parser, Class<T> type, Function<T, String> key, Shard shard,
+                                      List<T> slice) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            T item = mapper.readValue(parser, type);
+            if (shard.owns(key.apply(item))) {
+                slice.add(item);
+            }
+        }
+    }
+    
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Malformed test data: expected " + expected + " but found " + actual);
+        }
+    }
+    
+    // Streams one query per line from a JSONL corpus without holding the whole file
+    // on the heap; close the stream (try-with-resources) to release the file handle
+    public static Stream<CommonQuery> streamCorpus(Path jsonlFile) {
+        MappingIterator<CommonQuery> iterator;
+        try {
+            iterator = corpusReader.readValues(Files.newBufferedReader(jsonlFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open prompt corpus " + jsonlFile, e);
+        }
+        Spliterator<CommonQuery> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+public final class TextNormalizer implements CharSequence {
+    // Folds English and Arabic text to one matching form, a char at a time through a
+    // precomputed 64K table, so keywords, tokens and shingles agree however a reply is spelled:
+    //   - case, Latin accents (é -> e), fullwidth ASCII and curly quotes
+    //   - tashkeel, superscript alef, Quranic marks and tatweel are dropped
+    //   - alef variants (أ إ آ ٱ) -> ا, ؤ -> و, ئ and ى -> ي, ة -> ه, Persian ک/ی -> ك/ي
+    //   - Arabic presentation forms -> their base letters
+    //   - Arabic-Indic and Persian digits -> 0-9
+    //   - zero-width and bidi control chars are dropped, every kind of space is ' '
+    // fold() is the streaming form (KeywordMatcher, Tokenizer); an instance normalises whole
+    // texts into a reusable buffer and also collapses runs of spaces. An instance is not
+    // thread-safe; get() hands out one per thread.
+
+    // fold() result for chars that carry no meaning for matching
+    public static final char DROPPED = 0;
+
+    private static final char[] FOLD = buildTable();
+    private static final ThreadLocal<TextNormalizer> PER_THREAD = ThreadLocal.withInitial(TextNormalizer::new);
+
+    private char[] buffer;
+    private int length;
+
+    public TextNormalizer() {
+        this(256);
+    }
+
+    public TextNormalizer(int initialCapacity) {
+        this.buffer = new char[Math.max(16, initialCapacity)];
+    }
+
+    public static TextNormalizer get() {
+        return PER_THREAD.get();
+    }
+
+    public static char fold(char c) {
+        return FOLD[c];
+    }
+
+    // Matching form of a short text such as a keyword; allocates the result
+    public static String normalizeToString(CharSequence text) {
+        return new TextNormalizer(text == null ? 16 : text.length()).normalize(text).toString();
+    }
+
+    // Normalises into the buffer in one pass and returns this as a view of the result,
+    // valid until the next call. Leading and trailing spaces are trimmed.
+    public TextNormalizer normalize(CharSequence text) {
+        length = 0;
+        if (text == null) {
+            return this;
+        }
+        int n = text.length();
+        if (buffer.length < n) {
+            buffer = new char[Math.max(n, buffer.length * 2)];
+        }
+        char[] out = buffer;
+        int written = 0;
+        char previous = ' ';
+        for (int i = 0; i < n; i++) {
+            char c = FOLD[text.charAt(i)];
+            if (c == DROPPED || (c == ' ' && previous == ' ')) {
+                continue;
+            }
+            out[written++] = c;
+            previous = c;
+        }
+        length = written > 0 && out[written - 1] == ' ' ? written - 1 : written;
+        return this;
+    }
+
+    // Backing array of the last result; only the first length() chars are meaningful
+    public char[] buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private static char[] buildTable() {
+        char[] table = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            table[c] = Character.toLowerCase((char) c);
+        }
+        // Latin-1 and Latin Extended-A letters lose their accents (NFD base letter)
+        for (char c = 0x00C0; c <= 0x017F; c++) {
+            String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            if (base.length() > 1 && base.charAt(0) < 0x80 && Character.isLetter(base.charAt(0))) {
+                table[c] = Character.toLowerCase(base.charAt(0));
+            }
+        }
+        for (char c = 0xFF01; c <= 0xFF5E; c++) {
+            table[c] = Character.toLowerCase((char) (c - 0xFF01 + '!'));
+        }
+        map(table, '\'', '\u2018', '\u2019', '\u201B', '\u2032');
+        map(table, '"', '\u201C', '\u201D', '\u201F', '\u2033');
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                table[c] = ' ';
+            }
+        }
+        dropRange(table, 0x0000, 0x0008);
+        dropRange(table, 0x200B, 0x200F);
+        dropRange(table, 0x202A, 0x202E);
+        dropRange(table, 0x2060, 0x2069);
+        table[0x00AD] = DROPPED; // Soft hyphen
+        table[0xFEFF] = DROPPED;
+        table[0x061C] = DROPPED; // Arabic letter mark
+
+        dropRange(table, 0x064B, 0x065F); // Tashkeel
+        dropRange(table, 0x06D6, 0x06ED); // Quranic annotation marks
+        table[0x0670] = DROPPED;          // Superscript alef
+        table[0x0640] = DROPPED;          // Tatweel
+        map(table, 'ا', 'أ', 'إ', 'آ', 'ٱ');
+        map(table, 'و', 'ؤ');
+        map(table, 'ي', 'ئ', 'ى', 'ی');
+        map(table, 'ه', 'ة');
+        map(table, 'ك', 'ک');
+        for (int d = 0; d < 10; d++) {
+            table[0x0660 + d] = (char) ('0' + d);
+            table[0x06F0 + d] = (char) ('0' + d);
+        }
+
+        // Presentation forms (isolated, initial, medial, final) fold like their base letter;
+        // lam-alef ligatures are two letters and stay as they are
+        for (int c = 0xFB50; c <= 0xFEFC; c++) {
+            if (c >= 0xFE00 && c < 0xFE70) {
+                continue; // Variation selectors, CJK and small forms
+            }
+            String base = Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFKC);
+            if (base.length() == 1 && base.charAt(0) != c) {
+                table[c] = table[base.charAt(0)];
+            }
+        }
+        return table;
+    }
+
+    private static void dropRange(char[] table, int from, int to) {
+        Arrays.fill(table, from, to + 1, DROPPED);
+    }
+
+    private static void map(char[] table, char target, char... variants) {
+        for (char variant : variants) {
+            table[variant] = target;
+        }
+    }
+}
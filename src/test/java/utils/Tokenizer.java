@@ -0,0 +1,56 @@
+package utils;
+
+import java.util.function.LongConsumer;
+
+public final class Tokenizer {
+    // Splits text into runs of letters/digits in a single pass and reports each token
+    // as a 64-bit FNV-1a hash of its TextNormalizer-folded chars, so no substrings are
+    // allocated; tashkeel and tatweel are skipped instead of splitting a word
+
+    public static final int MIN_TOKEN_LENGTH = 3;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Tokenizer() {
+    }
+
+    // Returns the number of tokens emitted
+    public static int forEachToken(CharSequence text, LongConsumer sink) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        long hash = FNV_OFFSET;
+        int length = 0;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? TextNormalizer.fold(text.charAt(i)) : ' ';
+            if (c == TextNormalizer.DROPPED) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                hash = (hash ^ c) * FNV_PRIME;
+                length++;
+            } else if (length > 0) {
+                if (length >= MIN_TOKEN_LENGTH) {
+                    sink.accept(hash);
+                    count++;
+                }
+                hash = FNV_OFFSET;
+                length = 0;
+            }
+        }
+        return count;
+    }
+
+    public static long hash(CharSequence token) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < token.length(); i++) {
+            char c = TextNormalizer.fold(token.charAt(i));
+            if (c != TextNormalizer.DROPPED) {
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+}
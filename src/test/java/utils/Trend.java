@@ -0,0 +1,34 @@
+package utils;
+
+import java.util.Arrays;
+
+public final class Trend {
+    // Growth rate of a metric sampled over a run. Theil-Sen: the median of the slopes
+    // between every pair of samples, so a GC pause or one slow reply cannot tilt the line
+    // the way it tilts least squares. O(n^2) pairs, which is nothing at soak sample counts.
+
+    private Trend() {
+    }
+
+    // Change in y per unit of x; NaN with fewer than two distinct x values
+    public static double slope(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("x and y differ in length: " + x.length + " vs " + y.length);
+        }
+        int n = x.length;
+        double[] slopes = new double[n * (n - 1) / 2];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (x[j] != x[i]) {
+                    slopes[count++] = (y[j] - y[i]) / (x[j] - x[i]);
+                }
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(slopes, 0, count);
+        return count % 2 == 1 ? slopes[count / 2] : (slopes[count / 2 - 1] + slopes[count / 2]) / 2;
+    }
+}
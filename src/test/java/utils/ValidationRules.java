@@ -0,0 +1,49 @@
+package utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class ValidationRules {
+    private final long maxResponseTime;
+    private final int minResponseLength;
+    private final int maxResponseLength;
+    private final Map<String, Long> latencyBudgets;
+
+    @JsonCreator
+    public ValidationRules(@JsonProperty("maxResponseTime") long maxResponseTime,
+                           @JsonProperty("minResponseLength") int minResponseLength,
+                           @JsonProperty("maxResponseLength") int maxResponseLength,
+                           @JsonProperty("latencyBudgets") Map<String, Long> latencyBudgets) {
+        this.maxResponseTime = maxResponseTime;
+        this.minResponseLength = minResponseLength;
+        this.maxResponseLength = maxResponseLength;
+        this.latencyBudgets = latencyBudgets == null
+            ? Collections.emptyMap()
+            : Collections.unmodifiableMap(new TreeMap<>(latencyBudgets));
+    }
+
+    public long getMaxResponseTime() {
+        return maxResponseTime;
+    }
+
+    public int getMinResponseLength() {
+        return minResponseLength;
+    }
+
+    public int getMaxResponseLength() {
+        return maxResponseLength;
+    }
+
+    // Percentile label ("p50", "p99.9", ...) to the maximum total latency in ms under load
+    public Map<String, Long> getLatencyBudgets() {
+        return latencyBudgets;
+    }
+
+    public static double parsePercentile(String label) {
+        return Double.parseDouble(label.startsWith("p") ? label.substring(1) : label);
+    }
+}
@@ -0,0 +1,169 @@
+package utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class WaitHistory {
+    // How long each wait (selector + condition + language) took in recent runs. Only the
+    // newest SAMPLES_PER_KEY observations are kept, so budgets follow the app as it gets
+    // faster or slower. Persisted as JSON {key: [millis, ...]} between runs.
+    //
+    // Shards read the common history but only write what they observed themselves, to
+    // OBSERVATIONS_FILE in their metrics directory; ShardReportMerger folds those back in.
+
+    public static final int SAMPLES_PER_KEY = 200;
+    public static final String OBSERVATIONS_FILE = "wait-observations.json";
+    private static final TypeReference<Map<String, List<Long>>> FORMAT = new TypeReference<Map<String, List<Long>>>() { };
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static WaitHistory shared;
+
+    private final Path file;
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+    // Everything recorded since the history was opened, in order
+    private final Map<String, List<Long>> observations = new ConcurrentHashMap<>();
+
+    private WaitHistory(Path file) {
+        this.file = file;
+    }
+
+    public static WaitHistory open(Path file) {
+        WaitHistory history = new WaitHistory(file);
+        if (Files.exists(file)) {
+            try {
+                Map<String, List<Long>> saved = mapper.readValue(file.toFile(), FORMAT);
+                saved.forEach((key, millis) -> millis.forEach(value -> history.add(key, value)));
+            } catch (IOException e) {
+                // A corrupt history only costs one run of default budgets
+                System.out.println("Ignoring unreadable wait history " + file + ": " + e.getMessage());
+            }
+        }
+        return history;
+    }
+
+    public static synchronized WaitHistory shared() {
+        if (shared == null) {
+            shared = open(Paths.get(ConfigManager.getProperty("wait.history.path", "test-reports/wait-history.json")));
+        }
+        return shared;
+    }
+
+    public static synchronized void saveShared() {
+        if (shared == null) {
+            return;
+        }
+        if (Shard.current().isSharded()) {
+            shared.saveObservations(PhaseMetrics.getOutputDirectory().resolve(OBSERVATIONS_FILE));
+        } else {
+            shared.save();
+        }
+    }
+
+    public void record(String key, long millis) {
+        add(key, millis);
+        observations.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(millis);
+    }
+
+    // Folds in another run's observations, e.g. a shard's OBSERVATIONS_FILE
+    public void recordAll(Path observationsFile) {
+        try {
+            Map<String, List<Long>> observed = mapper.readValue(observationsFile.toFile(), FORMAT);
+            observed.forEach((key, millis) -> millis.forEach(value -> record(key, value)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read wait observations from " + observationsFile, e);
+        }
+    }
+
+    private void add(String key, long millis) {
+        samples.computeIfAbsent(key, k -> new Samples()).add(millis);
+    }
+
+    public int getSampleCount(String key) {
+        Samples keySamples = samples.get(key);
+        return keySamples == null ? 0 : keySamples.size();
+    }
+
+    // Nearest-rank percentile of the kept samples, or -1 with no history for the key
+    public long getPercentile(String key, double percentile) {
+        Samples keySamples = samples.get(key);
+        if (keySamples == null) {
+            return -1;
+        }
+        long[] sorted = keySamples.snapshot();
+        if (sorted.length == 0) {
+            return -1;
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    public synchronized void save() {
+        Map<String, long[]> snapshot = new TreeMap<>();
+        samples.forEach((key, keySamples) -> snapshot.put(key, keySamples.snapshot()));
+        write(file, snapshot);
+    }
+
+    public synchronized void saveObservations(Path target) {
+        Map<String, List<Long>> snapshot = new TreeMap<>();
+        observations.forEach((key, millis) -> {
+            synchronized (millis) {
+                snapshot.put(key, new ArrayList<>(millis));
+            }
+        });
+        write(target, snapshot);
+    }
+
+    // Written to a temporary file first so an interrupted run cannot truncate the target
+    private static void write(Path target, Object value) {
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "wait-history", ".tmp");
+            mapper.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), value);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save wait history to " + target, e);
+        }
+    }
+
+    // Ring buffer of the newest samples, oldest first in snapshots
+    private static final class Samples {
+        private final long[] ring = new long[SAMPLES_PER_KEY];
+        private int next;
+        private int size;
+
+        synchronized void add(long millis) {
+            ring[next] = millis;
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] snapshot() {
+            long[] copy = new long[size];
+            int start = (next - size + ring.length) % ring.length;
+            for (int i = 0; i < size; i++) {
+                copy[i] = ring[(start + i) % ring.length];
+            }
+            return copy;
+        }
+    }
+}